@@ -18,4 +18,15 @@ public interface IHANStack<T> {
      * @return value at the top of the stack
      */
     T peek();
+
+    /**
+     * Checks whether there is anything on the stack
+     * @return true if the stack holds no values
+     */
+    boolean isEmpty();
+
+    /**
+     * Removes all values from the stack
+     */
+    void clear();
 }
@@ -0,0 +1,118 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.ASTBuilder;
+import nl.han.ica.icss.parser.AntlrStylesheetParser;
+import nl.han.ica.icss.parser.ICSSLexer;
+import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles ICSS to CSS with one set of lexer, parser, AST builder, checker, evaluator and generator
+ * that is reset for every input instead of created anew. For batch compilation of many small files
+ * keep one context per worker thread, see forCurrentThread. A context is not thread-safe.
+ */
+public class CompilerContext extends BaseErrorListener {
+
+    private static final ThreadLocal<CompilerContext> PER_THREAD = ThreadLocal.withInitial(CompilerContext::new);
+
+    private final ICSSLexer lexer;
+    private final CommonTokenStream tokens;
+    private final ICSSParser parser;
+    private final ASTBuilder builder = new ASTBuilder();
+    private final Checker checker = new Checker();
+    private final Evaluator evaluator = new Evaluator();
+    private final Generator generator = new Generator();
+
+    private final List<String> errors = new ArrayList<>();
+    private AST ast;
+
+    public CompilerContext() {
+        lexer = new ICSSLexer(CharStreams.fromString(""));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(this);
+        tokens = new CommonTokenStream(lexer);
+        parser = new ICSSParser(tokens);
+        parser.setBuildParseTree(false);
+    }
+
+    /**
+     * @return the context of the calling thread, created on first use
+     */
+    public static CompilerContext forCurrentThread() {
+        return PER_THREAD.get();
+    }
+
+    /**
+     * Parses, checks, evaluates and generates the input.
+     * @param input the ICSS source
+     * @return the generated CSS, or null if there were errors (see getErrors)
+     */
+    public String compile(String input) {
+        if (!parse(input)) {
+            return null;
+        }
+        checker.check(ast);
+        for (SemanticError error : ast.getErrors()) {
+            errors.add(error.toString());
+        }
+        if (!errors.isEmpty()) {
+            return null;
+        }
+        evaluator.apply(ast);
+        return generator.generate(ast);
+    }
+
+    /**
+     * Parses the input, after resetting the lexer, parser and builder.
+     * @param input the ICSS source
+     * @return whether there were no syntax errors
+     */
+    public boolean parse(String input) {
+        reset();
+        lexer.setInputStream(CharStreams.fromString(input));
+        tokens.setTokenSource(lexer);
+        parser.setInputStream(tokens);
+        try {
+            ast = AntlrStylesheetParser.parseTwoStage(parser, this, ICSSParser::stylesheet, builder);
+
+        } catch (RecognitionException e) {
+            ast = new AST();
+            errors.add(e.getMessage());
+
+        } catch (ParseCancellationException e) {
+            ast = new AST();
+            errors.add("Syntax error");
+        }
+        return errors.isEmpty();
+    }
+
+    /**
+     * Forgets the previous input, its AST and its errors.
+     */
+    public void reset() {
+        errors.clear();
+        ast = null;
+    }
+
+    public AST getAST() {
+        return ast;
+    }
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                            int charPositionInLine, String msg, RecognitionException e) {
+        errors.add("Syntax error: " + msg);
+    }
+}
@@ -1,31 +1,62 @@
 package nl.han.ica.icss;
 
 import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.FlatAST;
 import nl.han.ica.icss.checker.Checker;
 import nl.han.ica.icss.checker.SemanticError;
 import nl.han.ica.icss.generator.Generator;
-import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.AntlrStylesheetParser;
 import nl.han.ica.icss.parser.ICSSLexer;
 import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.parser.IncrementalParser;
+import nl.han.ica.icss.parser.MappedAsciiCharStream;
+import nl.han.ica.icss.parser.StylesheetParser;
+import nl.han.ica.icss.parser.StylesheetSplitter;
+import nl.han.ica.icss.parser.TextEdit;
 import nl.han.ica.icss.transforms.Evaluator;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 public class Pipeline implements ANTLRErrorListener {
 
+    //Number of characters the streaming parser reads ahead at a time
+    private static final int STREAM_BUFFER_SIZE = 4096;
+
+    //Smallest chunk of input worth handing to another thread when parsing in parallel
+    private static final int MIN_CHUNK_SIZE = 16 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+
     private AST ast;
     private boolean parsed = false;
     private boolean checked = false;
     private boolean transformed = false;
     private List<String> errors;
+    private StylesheetParser stylesheetParser = new AntlrStylesheetParser();
+    private IncrementalParser incrementalParser;
+
+    //The passes keep their scratch structures between runs
+    private final Checker checker = new Checker();
+    private final Evaluator evaluator = new Evaluator();
+    private final Generator generator = new Generator();
 
     public Pipeline() {
         errors = new ArrayList<>();
@@ -47,47 +78,297 @@ public class Pipeline implements ANTLRErrorListener {
         return transformed;
     }
 
+    /*
+     Selects the engine parseString uses: the Antlr generated parser (the default)
+     or the hand-written RecursiveDescentParser. The streaming and parallel modes always use Antlr.
+     */
+    public void setStylesheetParser(StylesheetParser stylesheetParser) {
+        this.stylesheetParser = stylesheetParser;
+    }
+
     public void parseString(String input) {
+        errors.clear();
+        try {
+            this.ast = stylesheetParser.parse(input, this);
 
-        //Lex (with Antlr's generated lexer)
-        CharStream inputStream = CharStreams.fromString(input);
-        ICSSLexer lexer = new ICSSLexer(inputStream);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(this);
+        } catch (RecognitionException e) {
+            this.ast = new AST();
+            errors.add(e.getMessage());
+
+        } catch (ParseCancellationException e) {
+            this.ast = new AST();
+            errors.add("Syntax error");
+        }
+        parsed = errors.isEmpty();
+        checked = transformed = false;
+    }
+
+    /*
+     Only answers whether the input is syntactically valid, for tools that check many files.
+     Nothing but the lexer and parser run: no parse tree or AST is built and both stop at the
+     first error, which is the only error reported. The errors of the pipeline are then those of
+     this input, so it no longer counts as parsed, checked or transformed; its AST is left alone.
+     */
+    public boolean validateSyntax(String input) {
         errors.clear();
+        parsed = checked = transformed = false;
+        ANTLRErrorListener stopAtFirstError = new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                    int charPositionInLine, String msg, RecognitionException e) {
+                errors.add("Syntax error: " + msg);
+                throw new ParseCancellationException(msg);
+            }
+        };
+        ICSSLexer lexer = new ICSSLexer(CharStreams.fromString(input));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(stopAtFirstError);
+
+        ICSSParser parser = new ICSSParser(new CommonTokenStream(lexer));
+        parser.setBuildParseTree(false);
+        parser.removeErrorListeners();
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.setErrorHandler(new BailErrorStrategy());
+        try {
+            parser.stylesheet();
+            return true;
+        } catch (ParseCancellationException e) {
+            if (!errors.isEmpty()) {
+                return false; // the lexer already found the first error
+            }
+        }
+
+        //SLL also fails on the rare valid input it cannot predict, only full LL can tell
+        parser.reset();
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        parser.setErrorHandler(new DefaultErrorStrategy());
+        parser.addErrorListener(stopAtFirstError);
         try {
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
+            parser.stylesheet();
+        } catch (ParseCancellationException e) {
+            //Reported by the listener
+        }
+        return errors.isEmpty();
+    }
 
-            //Parse (with Antlr's generated parser)
-            ICSSParser parser = new ICSSParser(tokens);
-            parser.removeErrorListeners();
-            parser.addErrorListener(this);
+    public void parseStringParallel(String input) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        parseStringParallel(input, Math.max(MIN_CHUNK_SIZE, input.length() / (parallelism * CHUNKS_PER_THREAD)));
+    }
 
-            ParseTree parseTree = parser.stylesheet();
+    /*
+     Splits the input at top-level rule boundaries into chunks of about chunkSize characters,
+     parses the chunks on the common fork-join pool and joins the resulting stylesheets
+     in source order. Syntax errors are collected per chunk and reported in source order too.
+     */
+    public void parseStringParallel(String input, int chunkSize) {
+        errors.clear();
 
-            //Extract AST from the Antlr parse tree
-            ASTListener listener = new ASTListener();
-            ParseTreeWalker walker = new ParseTreeWalker();
-            walker.walk(listener, parseTree);
+        List<ParsedChunk> parsedChunks = StylesheetSplitter.split(input, chunkSize)
+                .parallelStream()
+                .map(chunk -> parseChunk(input, chunk))
+                .collect(Collectors.toList());
 
-            this.ast = listener.getAST();
+        this.ast = new AST();
+        for (ParsedChunk parsedChunk : parsedChunks) {
+            this.ast.root.body.addAll(parsedChunk.ast.root.body);
+            errors.addAll(parsedChunk.errors);
+        }
+        parsed = errors.isEmpty();
+        checked = transformed = false;
+    }
+
+    private ParsedChunk parseChunk(String input, StylesheetSplitter.Chunk chunk) {
+        ParsedChunk result = new ParsedChunk();
+
+        //Start the lexer at the chunk's position, so errors point into the whole input
+        ICSSLexer lexer = new ICSSLexer(CharStreams.fromString(input.substring(chunk.start, chunk.end)));
+        lexer.setLine(chunk.line);
+        lexer.setCharPositionInLine(chunk.column);
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(result);
+        try {
+            ICSSParser parser = new ICSSParser(new CommonTokenStream(lexer));
+            parser.setBuildParseTree(false);
+            result.ast = AntlrStylesheetParser.parseTwoStage(parser, result, ICSSParser::stylesheet);
+            //The character indexes count from the start of the chunk
+            result.ast.root.moveSpans(chunk.start);
 
         } catch (RecognitionException e) {
+            result.ast = new AST();
+            result.errors.add(e.getMessage());
+
+        } catch (ParseCancellationException e) {
+            result.ast = new AST();
+            result.errors.add("Syntax error");
+        }
+        return result;
+    }
+
+    //The AST and syntax errors of a single chunk, chunks are parsed concurrently
+    private static class ParsedChunk extends BaseErrorListener {
+        private AST ast;
+        private final List<String> errors = new ArrayList<>();
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                int charPositionInLine, String msg, RecognitionException e) {
+            errors.add("Syntax error: " + msg);
+        }
+    }
+
+    /*
+     Parses the input like parseString, but remembers it per top-level rule, so that
+     parseEdits can bring the AST up to date after the input is edited.
+     */
+    public void parseIncremental(String input) {
+        incrementalParser = new IncrementalParser(stylesheetParser);
+        updateIncremental(incrementalParser.parse(input));
+    }
+
+    public void parseEdit(int offset, int removedLength, String insertedText) {
+        parseEdits(List.of(new TextEdit(offset, removedLength, insertedText)));
+    }
+
+    /*
+     Applies the edits (in the order they were made) to the input of the last parseIncremental
+     and only parses the top-level rules they touch again. All other Stylerule and
+     VariableAssignment nodes are taken over from the previous AST.
+     */
+    public void parseEdits(List<TextEdit> edits) {
+        if (incrementalParser == null) {
+            throw new IllegalStateException("Nothing to edit, parseIncremental has not been called");
+        }
+        //After check or transform the AST is not the one of the text anymore, so parse the text again
+        AST result = incrementalParser.isInvalidated() ? incrementalParser.parse(incrementalParser.getText()) : this.ast;
+        for (TextEdit edit : edits) {
+            result = incrementalParser.edit(edit);
+        }
+        updateIncremental(result);
+    }
+
+    private void updateIncremental(AST result) {
+        this.ast = result;
+        errors.clear();
+        errors.addAll(incrementalParser.getErrors());
+        parsed = errors.isEmpty();
+        checked = transformed = false;
+    }
+
+    public void parseFile(Path path) throws IOException {
+        try (InputStream input = Files.newInputStream(path)) {
+            parseStream(input);
+        }
+    }
+
+    /*
+     Parses the input without ever holding all of it in memory: characters and tokens
+     are read through unbuffered streams and the parse tree is built (and dropped again)
+     one top-level rule at a time. The resulting AST is the same as for parseString.
+     */
+    public void parseStream(InputStream input) {
+
+        //Keep the text of each token, since consumed characters are discarded
+        CharStream inputStream = new UnbufferedCharStream(input, STREAM_BUFFER_SIZE, StandardCharsets.UTF_8);
+        ICSSLexer lexer = new ICSSLexer(inputStream);
+        lexer.setTokenFactory(new CommonTokenFactory(true));
+
+        parseUnbuffered(lexer);
+    }
+
+    /*
+     Like parseFile, but the lexer reads directly from the memory-mapped bytes of the file.
+     ICSS is pure ASCII, so no characters are decoded or copied onto the heap; tokens
+     only fetch their text from the mapping when it is asked for.
+     */
+    public void parseMappedFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            parseUnbuffered(new ICSSLexer(new MappedAsciiCharStream(buffer, path.toString())));
+        }
+    }
+
+    /*
+     Like parseMappedFile, but every top-level rule goes into a FlatAST as soon as it is parsed,
+     so the node objects of only one rule exist at a time. Run the passes on the result with
+     their FlatAST overloads; getAST is left empty.
+     */
+    public FlatAST parseFlatFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            FlatAST result = new FlatAST();
+            boolean complete = parseUnbuffered(new ICSSLexer(new MappedAsciiCharStream(buffer, path.toString())),
+                    result::appendTopLevel);
             this.ast = new AST();
+            if (!complete) {
+                return new FlatAST();
+            }
+            result.trimToSize();
+            return result;
+        }
+    }
+
+    private void parseUnbuffered(ICSSLexer lexer) {
+        AST result = new AST();
+        boolean complete = parseUnbuffered(lexer, result.root.body::add);
+        this.ast = complete ? result : new AST();
+    }
+
+    //Hands every parsed top-level rule to the sink, false if the parse was given up
+    private boolean parseUnbuffered(ICSSLexer lexer, Consumer<ASTNode> sink) {
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(this);
+        errors.clear();
+        try {
+            TokenStream tokens = new UnbufferedTokenStream<>(lexer);
+
+            ICSSParser parser = new ICSSParser(tokens);
+            parser.setBuildParseTree(false);
+            parseTopLevelRules(parser, tokens, sink);
+
+        } catch (RecognitionException e) {
             errors.add(e.getMessage());
+            return false;
 
         } catch (ParseCancellationException e) {
-            this.ast = new AST();
             errors.add("Syntax error");
+            return false;
+
+        } finally {
+            parsed = errors.isEmpty();
+            checked = transformed = false;
         }
-        parsed = errors.isEmpty();
-        checked = transformed = false;
+        return true;
     }
+
+    //Parse the stylesheet one variableAssignment or stylerule at a time
+    private void parseTopLevelRules(ICSSParser parser, TokenStream tokens, Consumer<ASTNode> sink) {
+        while (tokens.LA(1) != Token.EOF) {
+            int start = tokens.index();
+            AST rule = tokens.LA(1) == ICSSLexer.CAPITAL_IDENT
+                    ? AntlrStylesheetParser.parseTwoStage(parser, this, ICSSParser::variableAssignment)
+                    : AntlrStylesheetParser.parseTwoStage(parser, this, ICSSParser::stylerule);
+            rule.root.body.forEach(sink);
+
+            //Error recovery did not get past the offending token, skip it ourselves
+            if (tokens.index() == start) {
+                parser.consume();
+            }
+        }
+    }
+
     public boolean check() {
             if(ast == null)
                 return false;
 
-           (new Checker()).check(this.ast);
+           checker.check(this.ast);
+           invalidateIncremental();
 
             ArrayList<SemanticError> errors = this.ast.getErrors();
             if (!errors.isEmpty()) {
@@ -109,13 +390,20 @@ public class Pipeline implements ANTLRErrorListener {
         if(ast == null)
             return;
 
-        (new Evaluator()).apply(ast);
+        evaluator.apply(ast);
+        invalidateIncremental();
 
 
         transformed = errors.isEmpty();
     }
+    //The AST nodes have been changed in place, an incremental parse cannot reuse them anymore
+    private void invalidateIncremental() {
+        if (incrementalParser != null) {
+            incrementalParser.invalidate();
+        }
+    }
+
     public String generate() {
-        Generator generator = new Generator();
         return generator.generate(ast);
     }
 
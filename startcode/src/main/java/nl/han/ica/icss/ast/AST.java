@@ -9,28 +9,35 @@ import java.util.Objects;
 public class AST {
 	//The root of the tree
 	public Stylesheet root;
+	//The nodes with an error, filled by the Checker
+	private final ErrorIndex errorIndex = new ErrorIndex();
+	//The root the errors in the index were recorded for
+	private Stylesheet indexedRoot;
 
 	public AST() {
 		root = new Stylesheet();
+		indexedRoot = root;
 	}
 	public AST(Stylesheet stylesheet) {
 		root = stylesheet;
+		indexedRoot = stylesheet;
 	}
 	public void setRoot(Stylesheet stylesheet) {
 		root = stylesheet;
 	}
+	/*
+	 The errors recorded through this index since the root was set: after another root is set, the errors
+	 of the old one are forgotten, without being cleared from its nodes.
+	 */
+	public ErrorIndex getErrorIndex() {
+		if (indexedRoot != root) {
+			errorIndex.forget();
+			indexedRoot = root;
+		}
+		return errorIndex;
+	}
     public ArrayList<SemanticError> getErrors() {
-	    ArrayList<SemanticError> errors = new ArrayList<>();
-        collectErrors(errors,root);
-        return errors;
-    }
-    private void collectErrors(ArrayList<SemanticError> errors, ASTNode node) {
-	    if(node.hasError()) {
-	        errors.add(node.getError());
-        }
-        for(ASTNode child: node.getChildren()) {
-	        collectErrors(errors,child);
-        }
+	    return getErrorIndex().getErrors();
     }
 	@Override
 	public String toString() {
@@ -3,11 +3,35 @@ package nl.han.ica.icss.ast;
 import nl.han.ica.icss.checker.SemanticError;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Objects;
 
-public class ASTNode {
+public abstract class ASTNode {
 
+    private final NodeKind kind;
     private SemanticError error = null;
+    //The text the node was parsed from: its first character and length, see getSpan
+    private int offset = -1;
+    private int length;
+
+    //Set once the node is shared through a NodeTable, together with its structural hash
+    private NodeTable table = null;
+    private int hash;
+
+    protected ASTNode(NodeKind kind) {
+        this.kind = kind;
+    }
+
+    /*
+     The concrete type of this node, to switch on instead of testing instanceof.
+     */
+    public NodeKind getKind() {
+        return kind;
+    }
+
+    /*
+     Calls the visit method of the visitor for the type of this node.
+     */
+    public abstract <R> R accept(ASTVisitor<R> visitor);
 
     /*
      This method is used in the GUI to create an appropriate label
@@ -24,17 +48,29 @@ public class ASTNode {
     public ArrayList<ASTNode> getChildren() {
         return new ArrayList<>();
     }
+    /*
+     The same children as getChildren, by index, without building a list.
+     Subclasses that override getChildren override these two as well.
+     */
+    public int childCount() {
+        return 0;
+    }
+    public ASTNode childAt(int index) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: 0");
+    }
     /*
     By implementing this method in a subclass you can easily create AST nodes
       incrementally.
     */
     public ASTNode addChild(ASTNode child) {
+            checkNotShared();
             return this;
     }
     /*
     * By implementing this method you can easily make transformations that prune the AST.
     */
     public ASTNode removeChild(ASTNode child) {
+        checkNotShared();
         return this;
     }
 
@@ -42,10 +78,78 @@ public class ASTNode {
         return this.error;
     }
 
-    public void setError(String description) {
+    //Errors are set through the ErrorIndex of the AST, which keeps track of the nodes that have one
+    void recordError(String description) {
+        checkNotShared();
         this.error = new SemanticError(description);
     }
 
+    /*
+     Where in the text the node was parsed from, or null for a node that was not parsed, like the nodes
+     of a NodeTable or of a FlatTree view. Literals from valueOf are in many places at once and have none.
+     */
+    public SourceSpan getSpan() {
+        return offset < 0 ? null : new SourceSpan(offset, length);
+    }
+    /*
+     Set by the parser, offset is the index of the first character of the node in the text.
+     */
+    public void setSpan(int offset, int length) {
+        checkNotShared();
+        this.offset = offset;
+        this.length = length;
+    }
+    /*
+     Moves the spans of this node and of the nodes in it by delta characters: for nodes parsed from part
+     of a text, and for nodes kept when text before them was edited.
+     */
+    public void moveSpans(int delta) {
+        if (offset >= 0) {
+            offset += delta;
+        }
+        for (int i = 0; i < childCount(); i++) {
+            if (childAt(i) != null) {
+                childAt(i).moveSpans(delta);
+            }
+        }
+    }
+
+    /*
+     True if this node came from a NodeTable, or is a literal kept by valueOf: it may be part of several
+     trees at once and must not be changed.
+     */
+    public boolean isShared() {
+        return table != null;
+    }
+
+    /*
+     Throws UnsupportedOperationException if this node is shared. Every method that changes a node calls it,
+     and so must code that assigns to the public fields of a node that may come from a NodeTable.
+     */
+    public void checkNotShared() {
+        if (isShared()) {
+            throw new UnsupportedOperationException("A shared node cannot be changed: " + getNodeLabel());
+        }
+    }
+
+    void clearError() {
+        this.error = null;
+    }
+
+    boolean isSharedBy(NodeTable table) {
+        return this.table == table;
+    }
+    void share(NodeTable table, int hash) {
+        this.table = table;
+        this.hash = hash;
+        freeze();
+    }
+    /*
+     Called once the node is shared: nodes that keep their children in lists replace them by FrozenLists.
+     */
+    protected void freeze() {
+    }
+
     public boolean hasError() {
         return error != null;
     }
@@ -60,9 +164,9 @@ public class ASTNode {
 		builder.append("[");
 		builder.append(getNodeLabel());	
 		builder.append("|");
-		for(ASTNode child : getChildren()) {
-			child.toString(builder);
-		}	
+		for(int i = 0; i < childCount(); i++) {
+			childAt(i).toString(builder);
+		}
 		builder.append("]");
 	}
 
@@ -70,16 +174,35 @@ public class ASTNode {
     public boolean equals(Object o) {
         if(! (o instanceof ASTNode))
             return false;
+        ASTNode other = (ASTNode) o;
+        //A NodeTable holds one instance per structure
+        if(table != null && table == other.table)
+            return this == other;
+        if(other.kind != this.kind)
+            return false;
         //Compare all children
-        List<ASTNode> thisChildren = this.getChildren();
-        List<ASTNode> otherChildren = ((ASTNode) o).getChildren();
-        if(otherChildren.size() != thisChildren.size())
+        if(other.childCount() != this.childCount())
             return false;
-        for(int i = 0; i < thisChildren.size(); i++ ) {
-            if(!thisChildren.get(i).equals(otherChildren.get(i))) {
+        for(int i = 0; i < this.childCount(); i++ ) {
+            if(!Objects.equals(this.childAt(i), other.childAt(i))) {
                 return false;
             }
         }
         return true;
     }
+
+    /*
+     Hash of the kind and the children, consistent with equals. Subclasses with a value of their
+     own override it; shared nodes return the hash computed when they were added to the NodeTable.
+     */
+    @Override
+    public int hashCode() {
+        if(table != null)
+            return hash;
+        int result = kind.ordinal();
+        for(int i = 0; i < childCount(); i++) {
+            result = 31 * result + Objects.hashCode(childAt(i));
+        }
+        return result;
+    }
 }
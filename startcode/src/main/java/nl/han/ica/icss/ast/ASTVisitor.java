@@ -0,0 +1,36 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+
+/**
+ * A pass over the AST with one method per node type, called through ASTNode.accept.
+ * The visitor decides itself whether (and in which order) to visit the children.
+ * @param <R> what each visit returns
+ */
+public interface ASTVisitor<R> {
+    R visitStylesheet(Stylesheet node);
+    R visitStylerule(Stylerule node);
+    R visitTagSelector(TagSelector node);
+    R visitClassSelector(ClassSelector node);
+    R visitIdSelector(IdSelector node);
+    R visitDeclaration(Declaration node);
+    R visitPropertyName(PropertyName node);
+    R visitVariableAssignment(VariableAssignment node);
+    R visitVariableReference(VariableReference node);
+    R visitIfClause(IfClause node);
+    R visitElseClause(ElseClause node);
+    R visitAddOperation(AddOperation node);
+    R visitSubtractOperation(SubtractOperation node);
+    R visitMultiplyOperation(MultiplyOperation node);
+    R visitBoolLiteral(BoolLiteral node);
+    R visitColorLiteral(ColorLiteral node);
+    R visitPercentageLiteral(PercentageLiteral node);
+    R visitPixelLiteral(PixelLiteral node);
+    R visitScalarLiteral(ScalarLiteral node);
+}
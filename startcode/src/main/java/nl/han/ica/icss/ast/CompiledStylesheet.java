@@ -0,0 +1,210 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.checker.SemanticError;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * A stylesheet stored in the binary .icssc format, so a library that has been parsed and checked
+ * (or evaluated) once can be loaded again without lexing and parsing it.
+ *
+ * The file is memory-mapped and nothing is decoded when it is opened: nodes are read from the
+ * mapping when they are visited and names when they are first asked for. The layout, all ints
+ * big-endian:
+ * <pre>
+ *   header   magic 'ICSC', format version, node count, error count, name count
+ *   nodes    per node: kind (NodeKind ordinal), first child, next sibling, payload
+ *   errors   per error, ordered by node: node, index of the description in the names
+ *   names    name count + 1 offsets into the string data, then the UTF-8 string data
+ * </pre>
+ * The node records are those of a FlatAST. VERSION has to go up whenever NodeKind or the layout changes.
+ */
+public class CompiledStylesheet extends FlatTree {
+
+    public static final String EXTENSION = ".icssc";
+
+    private static final int MAGIC = 0x49435343;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 5 * Integer.BYTES;
+    private static final int NODE_SIZE = 4 * Integer.BYTES;
+    private static final int ERROR_SIZE = 2 * Integer.BYTES;
+
+    private static final NodeKind[] KINDS = NodeKind.values();
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int errorCount;
+    private final int errorsStart;
+    private final int offsetsStart;
+    private final int stringsStart;
+
+    //Decoded the first time they are asked for
+    private final String[] names;
+
+    private CompiledStylesheet(ByteBuffer buffer, String source) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled stylesheet: " + source);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported compiled stylesheet version " + buffer.getInt(4) + ": " + source);
+        }
+        size = buffer.getInt(8);
+        errorCount = buffer.getInt(12);
+        int nameCount = buffer.getInt(16);
+
+        errorsStart = HEADER_SIZE + size * NODE_SIZE;
+        offsetsStart = errorsStart + errorCount * ERROR_SIZE;
+        stringsStart = offsetsStart + (nameCount + 1) * Integer.BYTES;
+        if (size < 1 || errorCount < 0 || nameCount < 0 || stringsStart > buffer.limit()
+                || stringsStart + buffer.getInt(stringsStart - Integer.BYTES) != buffer.limit()) {
+            throw new IOException("Corrupt compiled stylesheet: " + source);
+        }
+        names = new String[nameCount];
+    }
+
+    /**
+     * Maps a file written by write.
+     * @param path the .icssc file
+     * @return the stylesheet in it
+     * @throws IOException if the file cannot be read or is not a compiled stylesheet of this version
+     */
+    public static CompiledStylesheet open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + path);
+            }
+            return new CompiledStylesheet(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), path.toString());
+        }
+    }
+
+    /**
+     * Writes an AST, with the errors the Checker set on it, as a compiled stylesheet.
+     * @param ast the AST to store
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(AST ast, Path path) throws IOException {
+        write(FlatAST.of(ast), path);
+    }
+
+    public static void write(FlatAST ast, Path path) throws IOException {
+        //Error descriptions are stored behind the names of the nodes
+        Map<Integer, SemanticError> errors = ast.errorsByNode();
+        byte[][] strings = new byte[ast.nameCount() + errors.size()][];
+        int stringsSize = 0;
+        for (int i = 0; i < ast.nameCount(); i++) {
+            strings[i] = ast.nameAt(i).getBytes(StandardCharsets.UTF_8);
+            stringsSize += strings[i].length;
+        }
+        int description = ast.nameCount();
+        for (SemanticError error : errors.values()) {
+            strings[description] = error.description.getBytes(StandardCharsets.UTF_8);
+            stringsSize += strings[description++].length;
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + ast.size() * NODE_SIZE + errors.size() * ERROR_SIZE
+                + (strings.length + 1) * Integer.BYTES + stringsSize);
+        out.putInt(MAGIC).putInt(VERSION).putInt(ast.size()).putInt(errors.size()).putInt(strings.length);
+        for (int node = 0; node < ast.size(); node++) {
+            out.putInt(ast.getKind(node).ordinal())
+                    .putInt(ast.getFirstChild(node))
+                    .putInt(ast.getNextSibling(node))
+                    .putInt(ast.getValue(node));
+        }
+        description = ast.nameCount();
+        for (int node : errors.keySet()) {
+            out.putInt(node).putInt(description++);
+        }
+        int offset = 0;
+        for (byte[] string : strings) {
+            out.putInt(offset);
+            offset += string.length;
+        }
+        out.putInt(offset);
+        for (byte[] string : strings) {
+            out.put(string);
+        }
+        Files.write(path, out.array());
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+    @Override
+    public NodeKind getKind(int node) {
+        return KINDS[field(node, 0)];
+    }
+    @Override
+    public int getFirstChild(int node) {
+        return field(node, 1);
+    }
+    @Override
+    public int getNextSibling(int node) {
+        return field(node, 2);
+    }
+    @Override
+    public int getValue(int node) {
+        return field(node, 3);
+    }
+    @Override
+    public String getName(int node) {
+        return name(getValue(node));
+    }
+
+    @Override
+    public SemanticError getError(int node) {
+        int low = 0;
+        int high = errorCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int errorNode = buffer.getInt(errorsStart + middle * ERROR_SIZE);
+            if (errorNode < node) {
+                low = middle + 1;
+            } else if (errorNode > node) {
+                high = middle - 1;
+            } else {
+                return new SemanticError(name(buffer.getInt(errorsStart + middle * ERROR_SIZE + Integer.BYTES)));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public ArrayList<SemanticError> getErrors() {
+        ArrayList<SemanticError> errors = new ArrayList<>(errorCount);
+        for (int i = 0; i < errorCount; i++) {
+            errors.add(new SemanticError(name(buffer.getInt(errorsStart + i * ERROR_SIZE + Integer.BYTES))));
+        }
+        return errors;
+    }
+
+    private int field(int node, int field) {
+        if (node < 0 || node >= size) {
+            throw new IndexOutOfBoundsException("Node: " + node + ", Size: " + size);
+        }
+        return buffer.getInt(HEADER_SIZE + node * NODE_SIZE + field * Integer.BYTES);
+    }
+
+    private String name(int index) {
+        String name = names[index];
+        if (name == null) {
+            int start = buffer.getInt(offsetsStart + index * Integer.BYTES);
+            int end = buffer.getInt(offsetsStart + (index + 1) * Integer.BYTES);
+            byte[] bytes = new byte[end - start];
+            buffer.duplicate().position(stringsStart + start).get(bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+            names[index] = name;
+        }
+        return name;
+    }
+}
@@ -11,10 +11,10 @@ public class Declaration extends ASTNode {
 	public Expression expression;
 
 	public Declaration() {
-		super();
+		super(NodeKind.DECLARATION);
 	}
 	public Declaration(String property) {
-		super();
+		super(NodeKind.DECLARATION);
 		this.property = new PropertyName(property);
 	}
 	@Override
@@ -33,7 +33,20 @@ public class Declaration extends ASTNode {
 		return children;
 	}
 	@Override
+	public int childCount() {
+		return (property != null ? 1 : 0) + (expression != null ? 1 : 0);
+	}
+	@Override
+	public ASTNode childAt(int index) {
+		if(index == 0 && property != null)
+			return property;
+		if(index < childCount())
+			return expression;
+		throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + childCount());
+	}
+	@Override
 	public ASTNode addChild(ASTNode child) {
+		checkNotShared();
 		if(child instanceof PropertyName) {
 			property = (PropertyName) child;
 		} else if(child instanceof Expression) {
@@ -51,8 +64,9 @@ public class Declaration extends ASTNode {
 		return Objects.equals(property, that.property) &&
 				Objects.equals(expression, that.expression);
 	}
+
 	@Override
-	public int hashCode() {
-		return Objects.hash(property, expression);
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitDeclaration(this);
 	}
 }
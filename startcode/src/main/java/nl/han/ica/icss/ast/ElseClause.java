@@ -7,9 +7,12 @@ public class ElseClause extends ASTNode{
 
     public ArrayList<ASTNode> body = new ArrayList<>();
 
-    public ElseClause() { }
+    public ElseClause() {
+        super(NodeKind.ELSE_CLAUSE);
+    }
 
     public ElseClause(ArrayList<ASTNode> body) {
+        super(NodeKind.ELSE_CLAUSE);
 
         this.body = body;
     }
@@ -19,6 +22,10 @@ public class ElseClause extends ASTNode{
         return "Else_Clause";
     }
     @Override
+    protected void freeze() {
+        body = new FrozenList<>(body);
+    }
+    @Override
     public ArrayList<ASTNode> getChildren() {
         ArrayList<ASTNode> children = new ArrayList<>();
         children.addAll(body);
@@ -26,8 +33,18 @@ public class ElseClause extends ASTNode{
         return children;
     }
 
+    @Override
+    public int childCount() {
+        return body.size();
+    }
+    @Override
+    public ASTNode childAt(int index) {
+        return body.get(index);
+    }
+
     @Override
     public ASTNode addChild(ASTNode child) {
+        checkNotShared();
 
         body.add(child);
 
@@ -43,10 +60,7 @@ public class ElseClause extends ASTNode{
     }
 
     @Override
-    public int hashCode() {
-        return Objects.hash(body);
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitElseClause(this);
     }
-
-
-
 }
@@ -0,0 +1,90 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.checker.SemanticError;
+
+import java.util.ArrayList;
+
+/**
+ * The nodes of an AST that have an error, with where they are in the source, kept up to date as
+ * the errors are recorded. Errors can only be set on nodes through an index, so asking for the
+ * errors afterwards costs O(errors) instead of a walk over every node.
+ */
+public class ErrorIndex {
+
+    //In the order their first error was recorded, which for the Checker is source order
+    private final ArrayList<ASTNode> nodes = new ArrayList<>();
+    //By node: its span when the error was recorded, null if it has none
+    private final ArrayList<SourceSpan> spans = new ArrayList<>();
+
+    /**
+     * Sets an error on a node. A node that already has one keeps its place with the new description.
+     * @param node the node the error is about
+     * @param description what is wrong
+     */
+    public void record(ASTNode node, String description) {
+        boolean indexed = node.hasError();
+        node.recordError(description); // which a shared node refuses
+        if (!indexed) {
+            nodes.add(node);
+            spans.add(node.getSpan());
+        }
+    }
+
+    /**
+     * Removes the recorded errors, from the index and from the nodes.
+     */
+    public void clear() {
+        for (ASTNode node : nodes) {
+            node.clearError();
+        }
+        nodes.clear();
+        spans.clear();
+    }
+
+    //Forgets the nodes without clearing their errors, when they are no longer part of the AST
+    void forget() {
+        nodes.clear();
+        spans.clear();
+    }
+
+    /**
+     * Appends the errors of another index, for errors recorded in parts and merged afterwards.
+     * @param other an index with none of the nodes of this one
+     */
+    public void addAll(ErrorIndex other) {
+        nodes.addAll(other.nodes);
+        spans.addAll(other.spans);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    /**
+     * @return the first error, or null if there is none
+     */
+    public SemanticError first() {
+        return nodes.isEmpty() ? null : nodes.get(0).getError();
+    }
+
+    public ASTNode getNode(int index) {
+        return nodes.get(index);
+    }
+    /**
+     * @return where the node of the error is in the source, or null if it was not parsed from text
+     */
+    public SourceSpan getSpan(int index) {
+        return spans.get(index);
+    }
+
+    public ArrayList<SemanticError> getErrors() {
+        ArrayList<SemanticError> errors = new ArrayList<>(nodes.size());
+        for (ASTNode node : nodes) {
+            errors.add(node.getError());
+        }
+        return errors;
+    }
+}
@@ -1,3 +1,24 @@
 package nl.han.ica.icss.ast;
 
-public abstract class Expression extends ASTNode { }
+import nl.han.ica.icss.ast.types.ExpressionType;
+
+public abstract class Expression extends ASTNode {
+
+    //Filled in by the Checker, null before the expression has been checked
+    private ExpressionType type;
+
+    protected Expression(NodeKind kind) {
+        super(kind);
+    }
+
+    /*
+     The type the Checker inferred for this expression, so later passes do not have to infer it again.
+     */
+    public ExpressionType getType() {
+        return type;
+    }
+    public void setType(ExpressionType type) {
+        checkNotShared();
+        this.type = type;
+    }
+}
@@ -0,0 +1,218 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import nl.han.ica.icss.checker.SemanticError;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TreeMap;
+
+/**
+ * A compact form of the AST for very large stylesheets. Instead of an object per node, every node
+ * is an index into four parallel int arrays: its kind, its first child, its next sibling and a
+ * payload. The payload is the value of a number literal, 1 or 0 for a boolean literal, and for
+ * selectors, property names, variable references and colours an index into a table of names,
+ * each of which is stored once. Semantic errors are kept apart, since hardly any node has one.
+ *
+ * Nodes are stored in source order with the Stylesheet at index 0, so the children of a node
+ * always come after it. The passes run over a FlatAST one top-level rule at a time through
+ * view, which builds the usual node objects for a single subtree.
+ */
+public class FlatAST extends FlatTree {
+
+    private static final NodeKind[] KINDS = NodeKind.values();
+
+    private int[] kinds = new int[16];
+    private int[] firstChildren = new int[16];
+    private int[] nextSiblings = new int[16];
+    private int[] payloads = new int[16];
+    private int size = 0;
+
+    private final ArrayList<String> names = new ArrayList<>();
+    private final HashMap<String, Integer> nameIndices = new HashMap<>();
+
+    private final TreeMap<Integer, SemanticError> errors = new TreeMap<>();
+
+    //Last top-level rule, so appending the next one does not have to walk the siblings
+    private int lastTopLevel = NONE;
+
+    public FlatAST() {
+        add(NodeKind.STYLESHEET, 0);
+    }
+
+    /**
+     * @param ast the tree to copy, including the errors the Checker set on it
+     * @return a FlatAST with the same nodes
+     */
+    public static FlatAST of(AST ast) {
+        FlatAST flat = new FlatAST();
+        for (int i = 0; i < ast.root.childCount(); i++) {
+            flat.appendTopLevel(ast.root.childAt(i));
+        }
+        if (ast.root.hasError()) {
+            flat.errors.put(ROOT, ast.root.getError());
+        }
+        flat.trimToSize();
+        return flat;
+    }
+
+    /**
+     * Adds a variableAssignment or stylerule (with everything in it) to the end of the stylesheet.
+     * The node itself is not kept, so a parser can hand over its rules one at a time.
+     * @param node the top-level rule
+     * @return the index of the added node
+     */
+    public int appendTopLevel(ASTNode node) {
+        int index = append(node);
+        if (lastTopLevel == NONE) {
+            firstChildren[ROOT] = index;
+        } else {
+            nextSiblings[lastTopLevel] = index;
+        }
+        lastTopLevel = index;
+        return index;
+    }
+
+    //Adds the node and its subtree in preorder, children that are missing are left out
+    private int append(ASTNode node) {
+        int index = add(node.getKind(), payloadOf(node));
+        if (node.hasError()) {
+            errors.put(index, node.getError());
+        }
+        int previous = NONE;
+        for (int i = 0; i < node.childCount(); i++) {
+            ASTNode child = node.childAt(i);
+            if (child == null) {
+                continue;
+            }
+            int childIndex = append(child);
+            if (previous == NONE) {
+                firstChildren[index] = childIndex;
+            } else {
+                nextSiblings[previous] = childIndex;
+            }
+            previous = childIndex;
+        }
+        return index;
+    }
+
+    /**
+     * Drops the room the arrays grew for nodes that were never added, once all nodes are in.
+     */
+    public void trimToSize() {
+        resize(size);
+    }
+
+    private void resize(int capacity) {
+        kinds = Arrays.copyOf(kinds, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        payloads = Arrays.copyOf(payloads, capacity);
+    }
+
+    private int add(NodeKind kind, int payload) {
+        if (size == kinds.length) {
+            resize(Math.max(16, size * 2));
+        }
+        kinds[size] = kind.ordinal();
+        firstChildren[size] = NONE;
+        nextSiblings[size] = NONE;
+        payloads[size] = payload;
+        return size++;
+    }
+
+    private int payloadOf(ASTNode node) {
+        switch (node.getKind()) {
+            case TAG_SELECTOR: return nameIndex(((TagSelector) node).tag);
+            case CLASS_SELECTOR: return nameIndex(((ClassSelector) node).cls);
+            case ID_SELECTOR: return nameIndex(((IdSelector) node).id);
+            case PROPERTY_NAME: return nameIndex(((PropertyName) node).name);
+            case VARIABLE_REFERENCE: return nameIndex(((VariableReference) node).name);
+            case COLOR_LITERAL: return nameIndex(((ColorLiteral) node).value);
+            case BOOL_LITERAL: return ((BoolLiteral) node).value ? 1 : 0;
+            case PERCENTAGE_LITERAL: return ((PercentageLiteral) node).value;
+            case PIXEL_LITERAL: return ((PixelLiteral) node).value;
+            case SCALAR_LITERAL: return ((ScalarLiteral) node).value;
+            default: return 0;
+        }
+    }
+
+    private int nameIndex(String name) {
+        Integer index = nameIndices.get(name);
+        if (index == null) {
+            index = names.size();
+            names.add(name);
+            nameIndices.put(name, index);
+        }
+        return index;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+    @Override
+    public NodeKind getKind(int node) {
+        return KINDS[kinds[node]];
+    }
+    @Override
+    public int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+    @Override
+    public int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+    @Override
+    public int getValue(int node) {
+        return payloads[node];
+    }
+    @Override
+    public String getName(int node) {
+        return names.get(payloads[node]);
+    }
+    @Override
+    public SemanticError getError(int node) {
+        return errors.get(node);
+    }
+
+    //The name table and errors, for writing them to a file
+    int nameCount() {
+        return names.size();
+    }
+    String nameAt(int index) {
+        return names.get(index);
+    }
+    TreeMap<Integer, SemanticError> errorsByNode() {
+        return errors;
+    }
+
+    /**
+     * Stores the errors set on a view of a subtree (by the Checker) with the nodes they belong to.
+     * @param node the index the view was made from
+     * @param view the view, with the same nodes as when it was made
+     */
+    public void collectErrors(int node, ASTNode view) {
+        if (view.hasError()) {
+            errors.put(node, view.getError());
+        } else {
+            errors.remove(node);
+        }
+        int child = firstChildren[node];
+        for (int i = 0; i < view.childCount() && child != NONE; i++) {
+            if (view.childAt(i) != null) {
+                collectErrors(child, view.childAt(i));
+                child = nextSiblings[child];
+            }
+        }
+    }
+
+    @Override
+    public ArrayList<SemanticError> getErrors() {
+        return new ArrayList<>(errors.values());
+    }
+}
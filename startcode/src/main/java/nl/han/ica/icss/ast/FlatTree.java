@@ -0,0 +1,108 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import nl.han.ica.icss.checker.SemanticError;
+
+import java.util.ArrayList;
+
+/**
+ * A stylesheet whose nodes are numbered instead of being objects, like a FlatAST in memory or a
+ * CompiledStylesheet in a file. Nodes are numbered in preorder with the Stylesheet at ROOT; each
+ * has a kind, a first child, a next sibling and a payload holding its number or its name.
+ *
+ * view turns a subtree into the usual node objects, so the passes can run over a FlatTree one
+ * top-level rule at a time.
+ */
+public abstract class FlatTree {
+
+    //Index of the Stylesheet node
+    public static final int ROOT = 0;
+    //First child or next sibling of a node that has none
+    public static final int NONE = -1;
+
+    public abstract int size();
+    public abstract NodeKind getKind(int node);
+    public abstract int getFirstChild(int node);
+    public abstract int getNextSibling(int node);
+    /*
+     The number or boolean (1 or 0) of a literal node.
+     */
+    public abstract int getValue(int node);
+    /*
+     The name of a selector, property name or variable reference, or the value of a colour literal.
+     */
+    public abstract String getName(int node);
+    /*
+     The error the Checker found at a node, or null.
+     */
+    public abstract SemanticError getError(int node);
+    /**
+     * @return the semantic errors in source order
+     */
+    public abstract ArrayList<SemanticError> getErrors();
+
+    /**
+     * Builds the node objects of one subtree, errors included. Changes made to them are not
+     * written back.
+     * @param node the index of the root of the subtree
+     * @return the subtree as ASTNodes
+     */
+    public ASTNode view(int node) {
+        return view(node, null);
+    }
+    //With the errors recorded in errors, or only on the nodes if it is null
+    private ASTNode view(int node, ErrorIndex errors) {
+        SemanticError error = getError(node);
+        ASTNode result = create(node, error != null);
+        if (error != null && errors != null) {
+            errors.record(result, error.description);
+        } else if (error != null) {
+            result.recordError(error.description);
+        }
+        for (int child = getFirstChild(node); child != NONE; child = getNextSibling(child)) {
+            result.addChild(view(child, errors));
+        }
+        return result;
+    }
+
+    /**
+     * @return the whole stylesheet as an AST of node objects, with its errors in its ErrorIndex
+     */
+    public AST toAST() {
+        ErrorIndex errors = new ErrorIndex();
+        AST ast = new AST((Stylesheet) view(ROOT, errors));
+        ast.getErrorIndex().addAll(errors);
+        return ast;
+    }
+
+    //A literal with an error gets one of its own, as those from valueOf are shared
+    private ASTNode create(int node, boolean own) {
+        switch (getKind(node)) {
+            case STYLESHEET: return new Stylesheet();
+            case STYLERULE: return new Stylerule();
+            case TAG_SELECTOR: return new TagSelector(getName(node));
+            case CLASS_SELECTOR: return new ClassSelector(getName(node));
+            case ID_SELECTOR: return new IdSelector(getName(node));
+            case DECLARATION: return new Declaration();
+            case PROPERTY_NAME: return new PropertyName(getName(node));
+            case VARIABLE_ASSIGNMENT: return new VariableAssignment();
+            case VARIABLE_REFERENCE: return new VariableReference(getName(node));
+            case IF_CLAUSE: return new IfClause();
+            case ELSE_CLAUSE: return new ElseClause();
+            case ADD_OPERATION: return new AddOperation();
+            case SUBTRACT_OPERATION: return new SubtractOperation();
+            case MULTIPLY_OPERATION: return new MultiplyOperation();
+            case BOOL_LITERAL: return own ? new BoolLiteral(getValue(node) != 0) : BoolLiteral.valueOf(getValue(node) != 0);
+            case COLOR_LITERAL: return own ? new ColorLiteral(getName(node)) : ColorLiteral.valueOf(getName(node));
+            case PERCENTAGE_LITERAL: return own ? new PercentageLiteral(getValue(node)) : PercentageLiteral.valueOf(getValue(node));
+            case PIXEL_LITERAL: return own ? new PixelLiteral(getValue(node)) : PixelLiteral.valueOf(getValue(node));
+            default: return own ? new ScalarLiteral(getValue(node)) : ScalarLiteral.valueOf(getValue(node));
+        }
+    }
+}
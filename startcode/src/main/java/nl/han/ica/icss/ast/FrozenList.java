@@ -0,0 +1,87 @@
+package nl.han.ica.icss.ast;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/*
+ The children of a shared node. It stays an ArrayList, the type of the public fields that hold
+ children, but every method that would change it throws UnsupportedOperationException.
+ */
+final class FrozenList<E> extends ArrayList<E> {
+    private static final long serialVersionUID = 1L;
+
+    FrozenList(Collection<? extends E> elements) {
+        super(elements);
+    }
+
+    private static UnsupportedOperationException frozen() {
+        return new UnsupportedOperationException("The children of a shared node cannot be changed");
+    }
+
+    @Override
+    public boolean add(E element) {
+        throw frozen();
+    }
+    @Override
+    public void add(int index, E element) {
+        throw frozen();
+    }
+    @Override
+    public boolean addAll(Collection<? extends E> elements) {
+        throw frozen();
+    }
+    @Override
+    public boolean addAll(int index, Collection<? extends E> elements) {
+        throw frozen();
+    }
+    @Override
+    public E set(int index, E element) {
+        throw frozen();
+    }
+    @Override
+    public E remove(int index) {
+        throw frozen();
+    }
+    @Override
+    public boolean remove(Object element) {
+        throw frozen();
+    }
+    @Override
+    public boolean removeAll(Collection<?> elements) {
+        throw frozen();
+    }
+    @Override
+    public boolean retainAll(Collection<?> elements) {
+        throw frozen();
+    }
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        throw frozen();
+    }
+    @Override
+    protected void removeRange(int from, int to) {
+        throw frozen();
+    }
+    @Override
+    public void replaceAll(UnaryOperator<E> operator) {
+        throw frozen();
+    }
+    @Override
+    public void sort(Comparator<? super E> comparator) {
+        throw frozen();
+    }
+    @Override
+    public void clear() {
+        throw frozen();
+    }
+    // The sublist of an ArrayList writes to its array directly
+    @Override
+    public List<E> subList(int from, int to) {
+        return Collections.unmodifiableList(super.subList(from, to));
+    }
+}
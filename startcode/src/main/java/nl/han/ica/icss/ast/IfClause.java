@@ -10,14 +10,18 @@ public class IfClause extends ASTNode {
     public ArrayList<ASTNode> body = new ArrayList<>();
     public ElseClause elseClause;
 
-    public IfClause() { }
+    public IfClause() {
+        super(NodeKind.IF_CLAUSE);
+    }
 
     public IfClause(Expression conditionalExpression, ArrayList<ASTNode> body) {
+        super(NodeKind.IF_CLAUSE);
 
         this.conditionalExpression = conditionalExpression;
         this.body = body;
     }
     public IfClause(Expression conditionalExpression, ArrayList<ASTNode> body, ElseClause elseClause) {
+        super(NodeKind.IF_CLAUSE);
 
         this.conditionalExpression = conditionalExpression;
         this.body = body;
@@ -29,6 +33,10 @@ public class IfClause extends ASTNode {
         return "If_Clause";
     }
     @Override
+    protected void freeze() {
+        body = new FrozenList<>(body);
+    }
+    @Override
     public ArrayList<ASTNode> getChildren() {
         ArrayList<ASTNode> children = new ArrayList<>();
         children.add(conditionalExpression);
@@ -39,8 +47,25 @@ public class IfClause extends ASTNode {
         return children;
     }
 
+    //Like getChildren, the condition always counts, even when it is missing
+    @Override
+    public int childCount() {
+        return 1 + body.size() + (elseClause != null ? 1 : 0);
+    }
+    @Override
+    public ASTNode childAt(int index) {
+        if (index == 0)
+            return conditionalExpression;
+        if (index <= body.size())
+            return body.get(index - 1);
+        if (index == body.size() + 1 && elseClause != null)
+            return elseClause;
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + childCount());
+    }
+
     @Override
     public ASTNode addChild(ASTNode child) {
+        checkNotShared();
         if(child instanceof Expression)
             conditionalExpression  = (Expression) child;
         else if (child instanceof ElseClause)
@@ -66,13 +91,14 @@ public class IfClause extends ASTNode {
 
     }
 
-    @Override
-    public int hashCode() {
-        return Objects.hash(conditionalExpression, body, elseClause);
-    }
 
     public Expression getConditionalExpression() {
         return conditionalExpression;
     }
     public ElseClause getElseClause() { return elseClause; }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitIfClause(this);
+    }
 }
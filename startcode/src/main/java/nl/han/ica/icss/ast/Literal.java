@@ -1,4 +1,46 @@
 package nl.han.ica.icss.ast;
 
+import nl.han.ica.icss.ast.types.ExpressionType;
+
+/*
+ The type of a literal follows from its kind, so a literal does not keep one of its own. That way the
+ literals handed out by the valueOf methods can be shared by any number of trees.
+ */
 public abstract class Literal extends Expression {
+
+    //Set on the literals the valueOf methods keep, which are in many trees at once
+    private boolean cached;
+
+    protected Literal(NodeKind kind) {
+        super(kind);
+    }
+
+    /*
+     Marks a literal the valueOf method of its class keeps, before it is handed out. From then on it is
+     shared, so it refuses errors and spans like the nodes of a NodeTable.
+     */
+    protected static <T extends Literal> T cache(T literal) {
+        ((Literal) literal).cached = true;
+        return literal;
+    }
+
+    @Override
+    public boolean isShared() {
+        return cached || super.isShared();
+    }
+
+    @Override
+    public ExpressionType getType() {
+        switch (getKind()) {
+            case PIXEL_LITERAL: return ExpressionType.PIXEL;
+            case PERCENTAGE_LITERAL: return ExpressionType.PERCENTAGE;
+            case SCALAR_LITERAL: return ExpressionType.SCALAR;
+            case COLOR_LITERAL: return ExpressionType.COLOR;
+            default: return ExpressionType.BOOL;
+        }
+    }
+    @Override
+    public void setType(ExpressionType type) {
+        //always the type of the kind
+    }
 }
@@ -0,0 +1,27 @@
+package nl.han.ica.icss.ast;
+
+/**
+ * The concrete type of an AST node. Every node carries its kind, so passes can switch on it
+ * instead of testing instanceof one class after another.
+ */
+public enum NodeKind {
+    STYLESHEET,
+    STYLERULE,
+    TAG_SELECTOR,
+    CLASS_SELECTOR,
+    ID_SELECTOR,
+    DECLARATION,
+    PROPERTY_NAME,
+    VARIABLE_ASSIGNMENT,
+    VARIABLE_REFERENCE,
+    IF_CLAUSE,
+    ELSE_CLAUSE,
+    ADD_OPERATION,
+    SUBTRACT_OPERATION,
+    MULTIPLY_OPERATION,
+    BOOL_LITERAL,
+    COLOR_LITERAL,
+    PERCENTAGE_LITERAL,
+    PIXEL_LITERAL,
+    SCALAR_LITERAL
+}
@@ -0,0 +1,94 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+
+import java.util.HashMap;
+
+/**
+ * Hash-consing for AST nodes: a table that holds one shared instance of every distinct subtree.
+ * Interning a tree returns a copy in which structurally equal subtrees (the same declaration in
+ * two rules, the same expression in two declarations) are one and the same node.
+ *
+ * Shared nodes store their hashCode when they are added, and two shared nodes of the same table
+ * are equal only if they are the same instance, so comparing or hashing them is O(1) and they
+ * can be used as keys for caching per subtree. They must not be changed afterwards: recording an error,
+ * setSpan, setType, addChild and removeChild throw, and the lists that hold their children are frozen.
+ * The other public fields cannot be guarded, so code that assigns them calls checkNotShared
+ * first; the Checker and Evaluator refuse shared trees. Errors are not
+ * copied into the table.
+ */
+public class NodeTable {
+
+    private final HashMap<ASTNode, ASTNode> nodes = new HashMap<>();
+
+    /**
+     * @param ast the tree to intern
+     * @return a tree with the same structure made of shared nodes
+     */
+    public AST intern(AST ast) {
+        return new AST((Stylesheet) intern(ast.root));
+    }
+
+    /**
+     * @param node the subtree to intern, may be null
+     * @return the shared node equal to it
+     */
+    public ASTNode intern(ASTNode node) {
+        if (node == null || node.isSharedBy(this)) {
+            return node;
+        }
+        //Children first, so comparing the copy with the nodes in the table is shallow
+        ASTNode copy = copyWithoutChildren(node);
+        for (int i = 0; i < node.childCount(); i++) {
+            ASTNode child = node.childAt(i);
+            if (child != null) {
+                copy.addChild(intern(child));
+            }
+        }
+        ASTNode shared = nodes.get(copy);
+        if (shared != null) {
+            return shared;
+        }
+        copy.share(this, copy.hashCode());
+        nodes.put(copy, copy);
+        return copy;
+    }
+
+    /**
+     * @return the number of distinct subtrees in the table
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    //Always a new node, also for literals: the table marks its nodes as its own, which a literal from valueOf is not
+    private static ASTNode copyWithoutChildren(ASTNode node) {
+        switch (node.getKind()) {
+            case STYLESHEET: return new Stylesheet();
+            case STYLERULE: return new Stylerule();
+            case TAG_SELECTOR: return new TagSelector(((TagSelector) node).tag);
+            case CLASS_SELECTOR: return new ClassSelector(((ClassSelector) node).cls);
+            case ID_SELECTOR: return new IdSelector(((IdSelector) node).id);
+            case DECLARATION: return new Declaration();
+            case PROPERTY_NAME: return new PropertyName(((PropertyName) node).name);
+            case VARIABLE_ASSIGNMENT: return new VariableAssignment();
+            case VARIABLE_REFERENCE: return new VariableReference(((VariableReference) node).name);
+            case IF_CLAUSE: return new IfClause();
+            case ELSE_CLAUSE: return new ElseClause();
+            case ADD_OPERATION: return new AddOperation();
+            case SUBTRACT_OPERATION: return new SubtractOperation();
+            case MULTIPLY_OPERATION: return new MultiplyOperation();
+            case BOOL_LITERAL: return new BoolLiteral(((BoolLiteral) node).value);
+            case COLOR_LITERAL: return new ColorLiteral(((ColorLiteral) node).value);
+            case PERCENTAGE_LITERAL: return new PercentageLiteral(((PercentageLiteral) node).value);
+            case PIXEL_LITERAL: return new PixelLiteral(((PixelLiteral) node).value);
+            default: return new ScalarLiteral(((ScalarLiteral) node).value);
+        }
+    }
+}
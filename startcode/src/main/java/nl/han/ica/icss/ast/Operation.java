@@ -7,6 +7,10 @@ public abstract class Operation extends Expression {
     public Expression lhs;
     public Expression rhs;
 
+    protected Operation(NodeKind kind) {
+        super(kind);
+    }
+
     @Override
     public ArrayList<ASTNode> getChildren() {
         ArrayList<ASTNode> children = new ArrayList<>();
@@ -17,8 +21,22 @@ public abstract class Operation extends Expression {
         return children;
     }
 
+    @Override
+    public int childCount() {
+        return (lhs != null ? 1 : 0) + (rhs != null ? 1 : 0);
+    }
+    @Override
+    public ASTNode childAt(int index) {
+        if(index == 0 && lhs != null)
+            return lhs;
+        if(index < childCount())
+            return rhs;
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + childCount());
+    }
+
     @Override
     public ASTNode addChild(ASTNode child) {
+        checkNotShared();
         if(lhs == null) {
             lhs = (Expression) child;
         } else if(rhs == null) {
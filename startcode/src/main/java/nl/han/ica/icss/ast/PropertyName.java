@@ -1,15 +1,17 @@
 package nl.han.ica.icss.ast;
 
+import java.util.Objects;
+
 public class PropertyName extends ASTNode {
 
     public String name;
 
     public PropertyName() {
-        super();
+        super(NodeKind.PROPERTY_NAME);
         name = "undefined";
     }
     public PropertyName(String name) {
-        super();
+        super(NodeKind.PROPERTY_NAME);
         this.name = name;
     }
 
@@ -17,4 +19,22 @@ public class PropertyName extends ASTNode {
     public String getNodeLabel() {
         return "Property: (" + name + ")";
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        PropertyName that = (PropertyName) o;
+        return Objects.equals(name, that.name);
+    }
+    @Override
+    public int hashCode() {
+        return Objects.hash(name);
+    }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitPropertyName(this);
+    }
 }
@@ -1,4 +1,8 @@
 package nl.han.ica.icss.ast;
 
 public abstract class Selector extends ASTNode {
+
+    protected Selector(NodeKind kind) {
+        super(kind);
+    }
 }
@@ -0,0 +1,39 @@
+package nl.han.ica.icss.ast;
+
+import java.util.Objects;
+
+/*
+ A part of the text a stylesheet was parsed from: the index of its first character and its length.
+ */
+public final class SourceSpan {
+    public final int offset;
+    public final int length;
+
+    public SourceSpan(int offset, int length) {
+        this.offset = offset;
+        this.length = length;
+    }
+
+    // The index just after the last character
+    public int getEnd() {
+        return offset + length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SourceSpan that = (SourceSpan) o;
+        return offset == that.offset && length == that.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(offset, length);
+    }
+
+    @Override
+    public String toString() {
+        return offset + ".." + getEnd();
+    }
+}
@@ -8,9 +8,12 @@ public class Stylerule extends ASTNode {
 	public ArrayList<Selector> selectors = new ArrayList<>();
 	public ArrayList<ASTNode> body = new ArrayList<>();
 
-    public Stylerule() { }
+    public Stylerule() {
+        super(NodeKind.STYLERULE);
+    }
 
     public Stylerule(Selector selector, ArrayList<ASTNode> body) {
+        super(NodeKind.STYLERULE);
 
     	this.selectors = new ArrayList<>();
     	this.selectors.add(selector);
@@ -22,6 +25,11 @@ public class Stylerule extends ASTNode {
 		return "Stylerule";
 	}
 	@Override
+	protected void freeze() {
+		selectors = new FrozenList<>(selectors);
+		body = new FrozenList<>(body);
+	}
+	@Override
 	public ArrayList<ASTNode> getChildren() {
 		ArrayList<ASTNode> children = new ArrayList<>();
 		children.addAll(selectors);
@@ -30,8 +38,18 @@ public class Stylerule extends ASTNode {
 		return children;
 	}
 
+	@Override
+	public int childCount() {
+		return selectors.size() + body.size();
+	}
+	@Override
+	public ASTNode childAt(int index) {
+		return index < selectors.size() ? selectors.get(index) : body.get(index - selectors.size());
+	}
+
     @Override
     public ASTNode addChild(ASTNode child) {
+		checkNotShared();
 		if(child instanceof Selector)
 			selectors.add((Selector) child);
 		else
@@ -50,7 +68,7 @@ public class Stylerule extends ASTNode {
 	}
 
 	@Override
-	public int hashCode() {
-		return Objects.hash(selectors, body);
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitStylerule(this);
 	}
 }
@@ -15,9 +15,11 @@ public class Stylesheet extends ASTNode {
 	public ArrayList<ASTNode> body;
 	
 	public Stylesheet() {
+		super(NodeKind.STYLESHEET);
 		this.body = new ArrayList<>();
 	}
 	public Stylesheet(ArrayList<ASTNode> body) {
+		super(NodeKind.STYLESHEET);
 		this.body = body;
 	}
 	@Override
@@ -25,16 +27,30 @@ public class Stylesheet extends ASTNode {
 		return "Stylesheet";
 	}
 	@Override
+	protected void freeze() {
+		body = new FrozenList<>(body);
+	}
+	@Override
 	public ArrayList<ASTNode> getChildren() {
 		return this.body;
 	}
 	@Override
+	public int childCount() {
+		return body.size();
+	}
+	@Override
+	public ASTNode childAt(int index) {
+		return body.get(index);
+	}
+	@Override
 	public ASTNode addChild(ASTNode child) {
+		checkNotShared();
 	    	body.add(child);
 	    	return this;
 	}
 	@Override
 	public ASTNode removeChild(ASTNode child) {
+		checkNotShared();
 		body.remove(child);
 		return this;
 	}
@@ -49,8 +65,7 @@ public class Stylesheet extends ASTNode {
 	}
 
 	@Override
-	public int hashCode() {
-
-		return Objects.hash(body);
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitStylesheet(this);
 	}
 }
@@ -12,6 +12,10 @@ public class VariableAssignment extends ASTNode {
 	public VariableReference name;
 	public Expression expression;
 
+	public VariableAssignment() {
+		super(NodeKind.VARIABLE_ASSIGNMENT);
+	}
+
 	@Override
 	public String getNodeLabel() {
 		return "VariableAssignment (" + name.name + ")";
@@ -19,6 +23,7 @@ public class VariableAssignment extends ASTNode {
 
 	@Override
 	public ASTNode addChild(ASTNode child) {
+		checkNotShared();
 		if(name == null) {
 			name = (VariableReference) child;
 		} else if(expression == null) {
@@ -39,6 +44,19 @@ public class VariableAssignment extends ASTNode {
 		return children;
 	}
 
+	@Override
+	public int childCount() {
+		return (name != null ? 1 : 0) + (expression != null ? 1 : 0);
+	}
+	@Override
+	public ASTNode childAt(int index) {
+		if(index == 0 && name != null)
+			return name;
+		if(index < childCount())
+			return expression;
+		throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + childCount());
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -50,7 +68,7 @@ public class VariableAssignment extends ASTNode {
 	}
 
 	@Override
-	public int hashCode() {
-		return Objects.hash(name, expression);
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitVariableAssignment(this);
 	}
 }
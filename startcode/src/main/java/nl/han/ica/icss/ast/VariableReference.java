@@ -7,7 +7,7 @@ public class VariableReference extends Expression {
 	public String name;
 	
 	public VariableReference(String name) {
-		super();
+		super(NodeKind.VARIABLE_REFERENCE);
 		this.name = name;
 	}
 
@@ -30,4 +30,9 @@ public class VariableReference extends Expression {
 
 		return Objects.hash(name);
 	}
+
+	@Override
+	public <R> R accept(ASTVisitor<R> visitor) {
+		return visitor.visitVariableReference(this);
+	}
 }
@@ -1,15 +1,27 @@
 package nl.han.ica.icss.ast.literals;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.NodeKind;
 import java.util.Objects;
 
 public class BoolLiteral extends Literal {
-    public boolean value;
+    public final boolean value;
+
+    private static final BoolLiteral TRUE = cache(new BoolLiteral(true));
+    private static final BoolLiteral FALSE = cache(new BoolLiteral(false));
+
+    //Always one of the same two literals, which are shared like those of the other valueOf methods
+    public static BoolLiteral valueOf(boolean value) {
+        return value ? TRUE : FALSE;
+    }
 
     public BoolLiteral(boolean value) {
+        super(NodeKind.BOOL_LITERAL);
         this.value = value;
     }
     public BoolLiteral(String text) {
+        super(NodeKind.BOOL_LITERAL);
         this.value = text.equals("TRUE");
     }
     @Override
@@ -31,4 +43,9 @@ public class BoolLiteral extends Literal {
     public int hashCode() {
         return Objects.hash(value);
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitBoolLiteral(this);
+    }
 }
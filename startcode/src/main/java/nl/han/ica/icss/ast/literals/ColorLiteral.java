@@ -1,13 +1,38 @@
 package nl.han.ica.icss.ast.literals;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.NodeKind;
 
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ColorLiteral extends Literal {
-    public String value;
+    public final String value;
+
+    //The colors valueOf hands out, up to CACHE_SIZE of them; colors after that get a new literal each time
+    private static final int CACHE_SIZE = 1024;
+    private static final ConcurrentHashMap<String, ColorLiteral> CACHE = new ConcurrentHashMap<>();
+
+    /*
+     The same literal for every use of a color, as written. It ends up in many trees, so it is shared: it cannot get an error or a span.
+     */
+    public static ColorLiteral valueOf(String value) {
+        ColorLiteral literal = CACHE.get(value);
+        if (literal == null) {
+            if (CACHE.size() < CACHE_SIZE) {
+                literal = cache(new ColorLiteral(value));
+                ColorLiteral cached = CACHE.putIfAbsent(value, literal);
+                if (cached != null) literal = cached;
+            } else {
+                literal = new ColorLiteral(value);
+            }
+        }
+        return literal;
+    }
 
     public ColorLiteral(String value) {
+        super(NodeKind.COLOR_LITERAL);
         this.value = value;
     }
     @Override
@@ -28,4 +53,9 @@ public class ColorLiteral extends Literal {
 
         return Objects.hash(value);
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitColorLiteral(this);
+    }
 }
@@ -1,16 +1,38 @@
 package nl.han.ica.icss.ast.literals;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.NodeKind;
 
 import java.util.Objects;
 
 public class PixelLiteral extends Literal {
-    public int value;
+    public final int value;
+
+    //The values valueOf keeps a literal for, sizes up to 1024px
+    private static final int CACHE_LOW = 0;
+    private static final int CACHE_HIGH = 1024;
+    private static final PixelLiteral[] CACHE = new PixelLiteral[CACHE_HIGH - CACHE_LOW + 1];
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = cache(new PixelLiteral(CACHE_LOW + i));
+        }
+    }
+
+    /*
+     Like Integer.valueOf: a common value always gives the same literal, others a new one.
+     The same literal ends up in many trees, so it is shared: it cannot get an error or a span.
+     */
+    public static PixelLiteral valueOf(int value) {
+        return value >= CACHE_LOW && value <= CACHE_HIGH ? CACHE[value - CACHE_LOW] : new PixelLiteral(value);
+    }
 
     public PixelLiteral(int value) {
+        super(NodeKind.PIXEL_LITERAL);
         this.value = value;
     }
     public PixelLiteral(String text) {
+        super(NodeKind.PIXEL_LITERAL);
         this.value = Integer.parseInt(text.substring(0, text.length() - 2));
     }
     @Override
@@ -31,4 +53,9 @@ public class PixelLiteral extends Literal {
     public int hashCode() {
         return Objects.hash(value);
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitPixelLiteral(this);
+    }
 }
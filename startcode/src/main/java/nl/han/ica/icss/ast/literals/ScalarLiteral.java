@@ -1,16 +1,38 @@
 package nl.han.ica.icss.ast.literals;
 
+import nl.han.ica.icss.ast.ASTVisitor;
 import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.NodeKind;
 
 import java.util.Objects;
 
 public class ScalarLiteral extends Literal {
-    public int value;
+    public final int value;
+
+    //The values valueOf keeps a literal for, small counts and factors
+    private static final int CACHE_LOW = -16;
+    private static final int CACHE_HIGH = 256;
+    private static final ScalarLiteral[] CACHE = new ScalarLiteral[CACHE_HIGH - CACHE_LOW + 1];
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = cache(new ScalarLiteral(CACHE_LOW + i));
+        }
+    }
+
+    /*
+     Like Integer.valueOf: a common value always gives the same literal, others a new one.
+     The same literal ends up in many trees, so it is shared: it cannot get an error or a span.
+     */
+    public static ScalarLiteral valueOf(int value) {
+        return value >= CACHE_LOW && value <= CACHE_HIGH ? CACHE[value - CACHE_LOW] : new ScalarLiteral(value);
+    }
 
     public ScalarLiteral(int value) {
+        super(NodeKind.SCALAR_LITERAL);
         this.value = value;
     }
     public ScalarLiteral(String text) {
+        super(NodeKind.SCALAR_LITERAL);
         this.value = Integer.parseInt(text);
     }
     @Override
@@ -31,4 +53,9 @@ public class ScalarLiteral extends Literal {
     public int hashCode() {
         return Objects.hash(value);
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitScalarLiteral(this);
+    }
 }
@@ -1,11 +1,22 @@
 package nl.han.ica.icss.ast.operations;
 
+import nl.han.ica.icss.ast.ASTVisitor;
+import nl.han.ica.icss.ast.NodeKind;
 import nl.han.ica.icss.ast.Operation;
 
 public class SubtractOperation extends Operation {
 
+    public SubtractOperation() {
+        super(NodeKind.SUBTRACT_OPERATION);
+    }
+
     @Override
     public String getNodeLabel() {
         return "Subtract";
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitSubtractOperation(this);
+    }
 }
@@ -1,5 +1,7 @@
 package nl.han.ica.icss.ast.selectors;
 
+import nl.han.ica.icss.ast.ASTVisitor;
+import nl.han.ica.icss.ast.NodeKind;
 import nl.han.ica.icss.ast.Selector;
 
 import java.util.Objects;
@@ -8,6 +10,7 @@ public class ClassSelector extends Selector {
     public String cls;
 
     public ClassSelector(String cls) {
+        super(NodeKind.CLASS_SELECTOR);
         this.cls = cls;
     }
 
@@ -32,4 +35,9 @@ public class ClassSelector extends Selector {
     public int hashCode() {
         return Objects.hash(cls);
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitClassSelector(this);
+    }
 }
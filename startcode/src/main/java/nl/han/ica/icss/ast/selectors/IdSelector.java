@@ -1,5 +1,7 @@
 package nl.han.ica.icss.ast.selectors;
 
+import nl.han.ica.icss.ast.ASTVisitor;
+import nl.han.ica.icss.ast.NodeKind;
 import nl.han.ica.icss.ast.Selector;
 
 import java.util.Objects;
@@ -8,6 +10,7 @@ public class IdSelector extends Selector {
     public String id;
 
     public IdSelector(String id) {
+        super(NodeKind.ID_SELECTOR);
         this.id = id;
     }
 
@@ -31,4 +34,9 @@ public class IdSelector extends Selector {
     public int hashCode() {
         return Objects.hash(id);
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitIdSelector(this);
+    }
 }
@@ -1,5 +1,7 @@
 package nl.han.ica.icss.ast.selectors;
 
+import nl.han.ica.icss.ast.ASTVisitor;
+import nl.han.ica.icss.ast.NodeKind;
 import nl.han.ica.icss.ast.Selector;
 
 import java.util.Objects;
@@ -8,6 +10,7 @@ public class TagSelector extends Selector {
     public String tag;
 
     public TagSelector(String tag) {
+        super(NodeKind.TAG_SELECTOR);
         this.tag = tag;
     }
 
@@ -32,4 +35,9 @@ public class TagSelector extends Selector {
 
         return Objects.hash(tag);
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visitTagSelector(this);
+    }
 }
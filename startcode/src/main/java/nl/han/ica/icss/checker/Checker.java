@@ -1,156 +1,337 @@
 package nl.han.ica.icss.checker;
 
-import nl.han.ica.datastructures.HANLinkedList;
-import nl.han.ica.datastructures.IHANLinkedList;
 import nl.han.ica.icss.ast.*;
-import nl.han.ica.icss.ast.literals.*;
-import nl.han.ica.icss.ast.operations.AddOperation;
-import nl.han.ica.icss.ast.operations.MultiplyOperation;
-import nl.han.ica.icss.ast.operations.SubtractOperation;
 import nl.han.ica.icss.ast.types.ExpressionType;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class Checker {
 
-    private IHANLinkedList<HashMap<String, ExpressionType>> variableTypes;
+    private final PropertySchema schema;
+    private final VariableResolver resolver;
+    // The types of the variables in the open scopes, at the depths and slots of the bindings
+    private final Frames<ExpressionType> variableTypes;
+    // The bindings of the node being checked, see VariableResolver, read at cursor by checkNode and at inferCursor by inferType
+    private int[] bindings;
+    private int cursor;
+    private int inferCursor;
+    // Where the errors go, the index of the AST being checked
+    private ErrorIndex errors;
+
+    public Checker() {
+        this(PropertySchema.getDefault());
+    }
+
+    public Checker(PropertySchema schema) {
+        this.schema = schema;
+        this.resolver = new VariableResolver(VariableResolver.Scoping.CHECK);
+        this.variableTypes = new Frames<>();
+    }
+
+    // Checks rules of checkParallel, with the variables in the open scopes of the checker it was copied from
+    private Checker(PropertySchema schema, Frames<ExpressionType> variableTypes) {
+        this.schema = schema;
+        this.resolver = null; // the rules were resolved before they were handed out
+        this.variableTypes = variableTypes;
+    }
+
+    // A checker that goes on with the variables as they are now, on another thread
+    private Checker copy() {
+        return new Checker(schema, variableTypes.copy());
+    }
+
+    // About 0.25ms of checking: with fewer rules than this, forking takes longer than it saves
+    static final int PARALLEL_THRESHOLD = 128;
 
     public void check(AST ast) {
-        variableTypes = new HANLinkedList<>();
-        variableTypes.addFirst(new HashMap<>()); // start with global scope
-        checkNode(ast.root);
+        errors = ast.getErrorIndex();
+        errors.clear(); // errors of an earlier check are found again if still there
+        startGlobalScope();
+        check(ast.root, resolver.resolve(ast.root));
     }
 
-    private void checkNode(ASTNode node) {
+    // Checks a node with the bindings the resolver gave it
+    private void check(ASTNode node, int[] bindings) {
+        this.bindings = bindings;
+        cursor = 0;
+        checkNode(node);
+    }
 
-        // --- open a new scope for Stylerule, IfClause or ElseClause ---
-        boolean opensScope = node instanceof Stylerule || node instanceof IfClause || node instanceof ElseClause;
-        if (opensScope) {
-            variableTypes.addFirst(new HashMap<>());
-        }
+    private void startGlobalScope() {
+        resolver.reset();
+        variableTypes.clear();
+        variableTypes.open();
+    }
+
+    public void checkParallel(AST ast) {
+        checkParallel(ast, ForkJoinPool.commonPool());
+    }
 
-        // Variable assignment -> store its type in current scope
-        if (node instanceof VariableAssignment) {
-            VariableAssignment assignment = (VariableAssignment) node;
-            ExpressionType type = inferType(assignment.expression);
-            variableTypes.getFirst().put(assignment.name.name, type);
+    /*
+     Same as check, with the top-level rules checked in parallel. Rules only share the global scope, so
+     the global assignments are checked first, in order, and every rule gets a copy of the global variables
+     as they are at that rule. The rules are then checked by fork-join tasks, each top-level node recording
+     its errors in an index of its own; these are merged in source order at the end.
+     A stylesheet of fewer than PARALLEL_THRESHOLD top-level nodes, or a pool of one thread, is checked
+     with check, as the copies and tasks would only add to the time.
+     */
+    public void checkParallel(AST ast, ForkJoinPool pool) {
+        checkParallel(ast, pool, PARALLEL_THRESHOLD);
+    }
+
+    void checkParallel(AST ast, ForkJoinPool pool, int threshold) {
+        if (ast.root.body.size() < threshold || pool.getParallelism() == 1) {
+            check(ast);
+            return;
         }
+        errors = ast.getErrorIndex();
+        errors.clear();
+        startGlobalScope();
 
-        // --- Variable reference check ---
-        if (node instanceof VariableReference) {
-            VariableReference reference = (VariableReference) node;
-            if (!isDefinedInCurrentScopes(reference.name)) {
-                reference.setError("Variable '" + reference.name + "' is not defined in current scope.");
+        ArrayList<ASTNode> body = ast.root.body;
+        ErrorIndex[] parts = new ErrorIndex[body.size()];
+        int[][] bindings = new int[body.size()][];
+        ArrayList<Checker> globals = new ArrayList<>(body.size());
+        Checker current = null;
+        for (int i = 0; i < body.size(); i++) {
+            ASTNode node = body.get(i);
+            parts[i] = new ErrorIndex();
+            bindings[i] = resolver.resolve(node);
+            if (node.getKind() == NodeKind.STYLERULE) {
+                if (current == null) current = copy();
+                globals.add(current);
+            } else {
+                errors = parts[i];
+                check(node, bindings[i]);
+                current = null; // the globals may have changed
+                globals.add(null);
             }
         }
+        pool.invoke(new CheckRules(body, bindings, globals, parts, 0, body.size()));
 
-        // If-clause: condition must be boolean
-        if (node instanceof IfClause) {
-            IfClause ifNode = (IfClause) node;
-            ExpressionType condType = inferType(ifNode.conditionalExpression);
-            if (condType != ExpressionType.BOOL) ifNode.setError("If-clause condition must be boolean.");
+        errors = ast.getErrorIndex();
+        for (ErrorIndex part : parts) {
+            errors.addAll(part);
         }
+    }
 
-        // --- check operations ---
-        if (node instanceof Operation) {
-            Operation op = (Operation) node;
-            ExpressionType leftType = inferType(op.lhs);
-            ExpressionType rightType = inferType(op.rhs);
+    // The rules between from and to of checkParallel, split in halves until there are few enough for one task
+    private static class CheckRules extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int RULES_PER_TASK = 16;
 
-            // + and - must have same type on both sides
-            if ((op instanceof AddOperation || op instanceof SubtractOperation) && leftType != rightType) {
-                op.setError("Operands of + or - must be the same type");
-            }
+        private final List<ASTNode> body;
+        private final int[][] bindings;
+        // By top-level node: a checker with the global variables at a rule, or null for an assignment
+        private final List<Checker> globals;
+        private final ErrorIndex[] parts;
+        private final int from, to;
 
-            // * requires at least one SCALAR
-            if (op instanceof MultiplyOperation && leftType != ExpressionType.SCALAR && rightType != ExpressionType.SCALAR) {
-                op.setError("At least one operand of * must be a scalar");
-            }
+        CheckRules(List<ASTNode> body, int[][] bindings, List<Checker> globals, ErrorIndex[] parts, int from, int to) {
+            this.body = body;
+            this.bindings = bindings;
+            this.globals = globals;
+            this.parts = parts;
+            this.from = from;
+            this.to = to;
+        }
 
-            // Colors cannot be in operations
-            if (leftType == ExpressionType.COLOR || rightType == ExpressionType.COLOR) {
-                op.setError("Colors cannot be used in operations");
+        @Override
+        protected void compute() {
+            if (to - from > RULES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CheckRules(body, bindings, globals, parts, from, middle),
+                        new CheckRules(body, bindings, globals, parts, middle, to));
+                return;
+            }
+            // The copies are shared by tasks, so each task checks on a copy of its own
+            Checker copied = null;
+            Checker checker = null;
+            for (int i = from; i < to; i++) {
+                if (globals.get(i) == null) continue;
+                if (globals.get(i) != copied) {
+                    copied = globals.get(i);
+                    checker = copied.copy();
+                }
+                checker.errors = parts[i];
+                checker.check(body.get(i), bindings[i]);
             }
         }
+    }
 
-        // --- type checks for declarations ---
-        if (node instanceof Declaration) {
-            Declaration decl = (Declaration) node;
-            String property = decl.property.name.toLowerCase();
-            ExpressionType valueType = inferType(decl.expression);
-
-            switch (property) {
-                case "color":
-                case "background-color":
-                    if (valueType != ExpressionType.COLOR) {
-                        decl.setError("Property '" + property + "' requires a COLOR.");
-                    }
-                    break;
-                case "width":
-                case "height":
-                case "margin":
-                case "padding":
-                case "top":
-                case "left":
-                    if (valueType != ExpressionType.PIXEL && valueType != ExpressionType.PERCENTAGE) {
-                        decl.setError("Property '" + property + "' must be PIXEL or PERCENTAGE.");
-                    }
-                    break;
+    /*
+     Checks a FlatAST one top-level rule at a time, storing the errors in the FlatAST.
+     */
+    public void check(FlatAST ast) {
+        errors = new ErrorIndex();
+        startGlobalScope();
+        for (int node = ast.getFirstChild(FlatTree.ROOT); node != FlatTree.NONE; node = ast.getNextSibling(node)) {
+            ASTNode view = ast.view(node);
+            errors.clear();
+            check(view, resolver.resolve(view));
+            ast.collectErrors(node, view);
+        }
+    }
+
+    private void checkNode(ASTNode node) {
+
+        // --- open a new scope for Stylerule, IfClause or ElseClause ---
+        NodeKind kind = node.getKind();
+        boolean opensScope = kind == NodeKind.STYLERULE || kind == NodeKind.IF_CLAUSE || kind == NodeKind.ELSE_CLAUSE;
+        if (opensScope) {
+            variableTypes.open();
+        }
+
+        switch (kind) {
+            // Variable assignment -> check its expression, then store its type in current scope
+            case VARIABLE_ASSIGNMENT: {
+                VariableAssignment assignment = (VariableAssignment) node;
+                inferCursor = cursor;
+                ExpressionType type = inferType(assignment.expression);
+                if (assignment.expression != null) {
+                    checkNode(assignment.expression);
+                }
+                variableTypes.store(bindings[cursor], bindings[cursor + 1], type);
+                cursor += 2;
+                break;
             }
+            // --- Variable reference check ---
+            case VARIABLE_REFERENCE: {
+                VariableReference reference = (VariableReference) node;
+                if (bindings[cursor] == VariableResolver.UNDEFINED) {
+                    errors.record(reference, "Variable '" + reference.name + "' is not defined in current scope.");
+                }
+                cursor += 2;
+                break;
+            }
+            // If-clause: condition must be boolean
+            case IF_CLAUSE: {
+                IfClause ifNode = (IfClause) node;
+                cursor += 2; // where the else-clause starts and ends, both branches are checked
+                inferCursor = cursor;
+                ExpressionType condType = inferType(ifNode.conditionalExpression);
+                if (condType != ExpressionType.BOOL) errors.record(ifNode, "If-clause condition must be boolean.");
+                break;
+            }
+            // --- check operations ---
+            case ADD_OPERATION:
+            case SUBTRACT_OPERATION:
+            case MULTIPLY_OPERATION:
+                checkOperation((Operation) node);
+                break;
+            // --- type checks for declarations ---
+            case DECLARATION:
+                checkDeclaration((Declaration) node);
+                break;
+            default:
+                break;
         }
 
-        // Go through all children recursively
-        for (ASTNode child : node.getChildren()) {
-            checkNode(child);
+        // Go through all children recursively, those of an assignment were checked above
+        if (kind != NodeKind.VARIABLE_ASSIGNMENT) {
+            for (int i = 0; i < node.childCount(); i++) {
+                checkNode(node.childAt(i));
+            }
         }
 
         // Close the scope if we opened one
         if (opensScope) {
-            variableTypes.removeFirst();
+            variableTypes.close();
+        }
+    }
+
+    // The operands were typed when the declaration, assignment or if-clause around op was checked
+    private void checkOperation(Operation op) {
+        ExpressionType leftType = typeOf(op.lhs);
+        ExpressionType rightType = typeOf(op.rhs);
+
+        // + and - must have same type on both sides
+        if (op.getKind() != NodeKind.MULTIPLY_OPERATION && leftType != rightType) {
+            errors.record(op, "Operands of + or - must be the same type");
+        }
+
+        // * requires at least one SCALAR
+        if (op.getKind() == NodeKind.MULTIPLY_OPERATION && leftType != ExpressionType.SCALAR && rightType != ExpressionType.SCALAR) {
+            errors.record(op, "At least one operand of * must be a scalar");
+        }
+
+        // Colors cannot be in operations
+        if (leftType == ExpressionType.COLOR || rightType == ExpressionType.COLOR) {
+            errors.record(op, "Colors cannot be used in operations");
         }
     }
 
-    // check if a variable is defined in any visible scope
-    private boolean isDefinedInCurrentScopes(String name) {
-        for (int i = 0; i < variableTypes.getSize(); i++) {
-            if (variableTypes.get(i).containsKey(name)) return true;
+    private void checkDeclaration(Declaration decl) {
+        inferCursor = cursor;
+        ExpressionType valueType = inferType(decl.expression);
+        int id = schema.idOf(decl.property.name);
+        if (id == PropertySchema.UNKNOWN || schema.allows(id, valueType)) return;
+
+        List<ExpressionType> allowed = schema.getAllowedTypes(id);
+        String property = schema.getName(id);
+        if (allowed.size() == 1) {
+            errors.record(decl, "Property '" + property + "' requires a " + allowed.get(0) + ".");
+        } else {
+            StringJoiner types = new StringJoiner(" or ");
+            allowed.forEach(type -> types.add(type.name()));
+            errors.record(decl, "Property '" + property + "' must be " + types + ".");
         }
-        return false;
     }
 
-    // infer type of an expression
+    // infer the type of an expression and of everything in it, bottom-up, storing each type on its node.
+    // Every expression is part of one declaration, assignment or if-clause, so it is typed once per check
     private ExpressionType inferType(Expression expr) {
-        if (expr instanceof ColorLiteral) return ExpressionType.COLOR;
-        if (expr instanceof PixelLiteral) return ExpressionType.PIXEL;
-        if (expr instanceof PercentageLiteral) return ExpressionType.PERCENTAGE;
-        if (expr instanceof ScalarLiteral) return ExpressionType.SCALAR;
-        if (expr instanceof BoolLiteral) return ExpressionType.BOOL;
-
-        if (expr instanceof VariableReference) {
-            String name = ((VariableReference) expr).name;
-            for (int i = 0; i < variableTypes.getSize(); i++) {
-                if (variableTypes.get(i).containsKey(name)) return variableTypes.get(i).get(name);
-            }
-        }
+        if (expr == null) return ExpressionType.UNDEFINED;
 
-        // --- handle operations ---
-        if (expr instanceof Operation) {
-            Operation op = (Operation) expr;
-            ExpressionType leftType = inferType(op.lhs);
-            ExpressionType rightType = inferType(op.rhs);
+        ExpressionType type = ExpressionType.UNDEFINED; // unless we can figure it out
+        switch (expr.getKind()) {
+            case COLOR_LITERAL: type = ExpressionType.COLOR; break;
+            case PIXEL_LITERAL: type = ExpressionType.PIXEL; break;
+            case PERCENTAGE_LITERAL: type = ExpressionType.PERCENTAGE; break;
+            case SCALAR_LITERAL: type = ExpressionType.SCALAR; break;
+            case BOOL_LITERAL: type = ExpressionType.BOOL; break;
 
-            if (op instanceof MultiplyOperation) {
-                // multiplication: if one side is SCALAR, return the other type
-                if (leftType == ExpressionType.SCALAR) return rightType;
-                if (rightType == ExpressionType.SCALAR) return leftType;
+            case VARIABLE_REFERENCE: {
+                int depth = bindings[inferCursor];
+                if (depth >= 0) type = variableTypes.load(depth, bindings[inferCursor + 1]);
+                inferCursor += 2;
+                break;
             }
 
-            // + or -: both sides must be same type, return that type
-            if (op instanceof AddOperation || op instanceof SubtractOperation) {
-                if (leftType == rightType) return leftType;
+            // --- handle operations ---
+            case MULTIPLY_OPERATION: {
+                Operation op = (Operation) expr;
+                ExpressionType leftType = inferType(op.lhs);
+                ExpressionType rightType = inferType(op.rhs);
+                // multiplication: if one side is SCALAR, return the other type
+                if (leftType == ExpressionType.SCALAR) type = rightType;
+                else if (rightType == ExpressionType.SCALAR) type = leftType;
+                break;
             }
+            case ADD_OPERATION:
+            case SUBTRACT_OPERATION: {
+                Operation op = (Operation) expr;
+                ExpressionType leftType = inferType(op.lhs);
+                ExpressionType rightType = inferType(op.rhs);
+                // + or -: both sides must be same type, return that type
+                if (leftType == rightType) type = leftType;
+                break;
+            }
+            default:
+                break;
         }
 
-        return ExpressionType.UNDEFINED; // couldn't figure it out
+        expr.setType(type);
+        return type;
+    }
+
+    // the type inferType stored on an expression
+    private static ExpressionType typeOf(Expression expr) {
+        if (expr == null || expr.getType() == null) return ExpressionType.UNDEFINED;
+        return expr.getType();
     }
 }
@@ -0,0 +1,60 @@
+package nl.han.ica.icss.checker;
+
+import java.util.Arrays;
+
+/*
+ The values of the variables in the open scopes, one array per scope, read and written at the
+ depth and slot the VariableResolver bound a reference to. A pass opens and closes the scopes here where
+ the resolver did, so the depths count the same scopes. The arrays are kept when a scope closes and
+ used again by the next scope at the same depth.
+ */
+public class Frames<T> {
+
+    private Object[][] frames = new Object[8][];
+    private int level = -1;
+
+    public void clear() {
+        level = -1;
+    }
+
+    public void open() {
+        level++;
+        if (level == frames.length) {
+            frames = Arrays.copyOf(frames, level * 2);
+        }
+        if (frames[level] == null) {
+            frames[level] = new Object[4];
+        }
+    }
+
+    public void close() {
+        level--;
+    }
+
+    // A copy of the open scopes, to go on with the variables as they are now on another thread
+    public Frames<T> copy() {
+        Frames<T> copy = new Frames<>();
+        copy.frames = new Object[frames.length][];
+        for (int i = 0; i <= level; i++) {
+            copy.frames[i] = frames[i].clone();
+        }
+        copy.level = level;
+        return copy;
+    }
+
+    // Store the value of an assignment, in the scope depth levels out from the current one
+    public void store(int depth, int slot, T value) {
+        int scope = level - depth;
+        Object[] frame = frames[scope];
+        if (slot >= frame.length) {
+            frames[scope] = frame = Arrays.copyOf(frame, Math.max(slot + 1, frame.length * 2));
+        }
+        frame[slot] = value;
+    }
+
+    // The value in the scope depth levels out from the current one
+    @SuppressWarnings("unchecked")
+    public T load(int depth, int slot) {
+        return (T) frames[level - depth][slot];
+    }
+}
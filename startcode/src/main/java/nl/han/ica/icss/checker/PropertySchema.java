@@ -0,0 +1,194 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.types.ExpressionType;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/*
+ The properties the Checker knows, with the types each of them allows. Read from a text file with one
+ property per line: its name followed by the allowed types, for example "width PIXEL PERCENTAGE".
+ Empty lines and lines starting with # are skipped.
+
+ Every property gets an id, found with a perfect hash built when the schema is loaded: one or two hashes
+ of the name and one comparison, without allocating. Names are compared ignoring case.
+ Properties that are not in the schema have id UNKNOWN and are not checked.
+ */
+public class PropertySchema {
+
+    public static final int UNKNOWN = -1;
+    public static final String DEFAULT_RESOURCE = "properties.txt";
+    // The seeds tried for a bucket before giving up; schemas of thousands of properties need less than a hundred
+    static final int MAX_SEED = 1 << 16;
+
+    // Loaded the first time it is used
+    private static class Default {
+        static final PropertySchema SCHEMA = loadResource(DEFAULT_RESOURCE);
+    }
+
+    // By id: the name and the allowed types, one bit per ExpressionType ordinal
+    private final String[] names;
+    private final int[] allowed;
+    // By bucket: the seed of the second hash, or -(id + 1) for a bucket with a single name
+    private final int[] displacements;
+
+    public static PropertySchema getDefault() {
+        return Default.SCHEMA;
+    }
+
+    public static PropertySchema loadResource(String resource) {
+        InputStream in = PropertySchema.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalArgumentException("Property schema not found: " + resource);
+        }
+        try (in) {
+            return load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static PropertySchema load(InputStream in) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<Integer> masks = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        int lineNumber = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] fields = line.split("\\s+");
+            if (fields.length < 2) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": a property needs at least one type");
+            }
+            String name = fields[0].toLowerCase(Locale.ROOT);
+            if (!seen.add(name)) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": property " + name + " is listed twice");
+            }
+            int mask = 0;
+            for (int i = 1; i < fields.length; i++) {
+                try {
+                    mask |= bit(ExpressionType.valueOf(fields[i]));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": unknown type " + fields[i]);
+                }
+            }
+            names.add(name);
+            masks.add(mask);
+        }
+        return new PropertySchema(names, masks);
+    }
+
+    private PropertySchema(List<String> names, List<Integer> masks) {
+        int size = names.size();
+        this.names = new String[size];
+        this.allowed = new int[size];
+        this.displacements = new int[size];
+
+        // Put the names in buckets by their first hash, and place the biggest buckets first
+        List<List<Integer>> buckets = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int i = 0; i < size; i++) {
+            buckets.get(hash(0, names.get(i)) % size).add(i);
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+        // A bucket with more names gets the first seed that hashes all of them to free, different ids
+        int next = 0;
+        for (; next < size && buckets.get(order[next]).size() > 1; next++) {
+            List<Integer> bucket = buckets.get(order[next]);
+            int[] ids = new int[bucket.size()];
+            int seed = 1;
+            while (!fits(seed, bucket, names, ids)) {
+                if (++seed > MAX_SEED) {
+                    throw new IllegalArgumentException("No seed found that tells apart the properties " + bucketNames(bucket, names));
+                }
+            }
+            displacements[order[next]] = seed;
+            for (int i = 0; i < ids.length; i++) {
+                place(ids[i], names.get(bucket.get(i)), masks.get(bucket.get(i)));
+            }
+        }
+        // A bucket with one name takes any free id
+        int free = 0;
+        for (; next < size && buckets.get(order[next]).size() == 1; next++) {
+            while (this.names[free] != null) free++;
+            int index = buckets.get(order[next]).get(0);
+            displacements[order[next]] = -(free + 1);
+            place(free, names.get(index), masks.get(index));
+        }
+    }
+
+    private boolean fits(int seed, List<Integer> bucket, List<String> names, int[] ids) {
+        for (int i = 0; i < bucket.size(); i++) {
+            ids[i] = hash(seed, names.get(bucket.get(i))) % this.names.length;
+            if (this.names[ids[i]] != null) return false;
+            for (int j = 0; j < i; j++) {
+                if (ids[j] == ids[i]) return false;
+            }
+        }
+        return true;
+    }
+
+    private static String bucketNames(List<Integer> bucket, List<String> names) {
+        StringJoiner joiner = new StringJoiner(", ");
+        bucket.forEach(index -> joiner.add(names.get(index)));
+        return joiner.toString();
+    }
+
+    private void place(int id, String name, int mask) {
+        names[id] = name;
+        allowed[id] = mask;
+    }
+
+    // FNV-1a of the name in lower case, starting from the seed
+    private static int hash(int seed, String name) {
+        int hash = 0x811c9dc5 ^ seed;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            hash = (hash ^ c) * 0x01000193;
+        }
+        return hash & 0x7fffffff;
+    }
+
+    private static int bit(ExpressionType type) {
+        return 1 << type.ordinal();
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public int idOf(String name) {
+        if (name == null || names.length == 0) return UNKNOWN;
+        int displacement = displacements[hash(0, name) % names.length];
+        int id = displacement < 0 ? -displacement - 1 : hash(displacement, name) % names.length;
+        return name.equalsIgnoreCase(names[id]) ? id : UNKNOWN;
+    }
+
+    public String getName(int id) {
+        return names[id];
+    }
+
+    public boolean allows(int id, ExpressionType type) {
+        return (allowed[id] & bit(type)) != 0;
+    }
+
+    public List<ExpressionType> getAllowedTypes(int id) {
+        List<ExpressionType> types = new ArrayList<>();
+        for (ExpressionType type : ExpressionType.values()) {
+            if (allows(id, type)) types.add(type);
+        }
+        return types;
+    }
+}
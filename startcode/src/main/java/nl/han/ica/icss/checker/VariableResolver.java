@@ -0,0 +1,275 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.ast.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/*
+ Binds the variable references of a tree to the variables they use, in one pass before the tree is
+ checked or evaluated, so those passes keep the values in Frames and never look a name up themselves.
+
+ resolve gives the bindings as an int array, in the order a pass walks the tree. Every variable
+ reference has two ints: how many scopes out from the current one its variable is, and its slot in that
+ scope. The reference of an assignment comes after those in its expression. Every if-clause starts with
+ two ints: where the bindings of its else-clause start and where those after the if-clause start, so
+ a pass can skip a branch it does not take. Only resolve looks names up.
+
+ The Checker and the Evaluator do not scope variables quite the same way, see Scoping.
+ */
+public class VariableResolver {
+
+    // The depth of a reference to a name no open scope has
+    public static final int UNDEFINED = -1;
+    // The depth of a reference in an assignment to the name it assigns, when it had no variable before (Scoping.CHECK)
+    public static final int SELF = -2;
+
+    public enum Scoping {
+        /*
+         Like the Checker: a stylerule, an if-clause and its else-clause inside it are scopes, the condition
+         and the body of an if-clause are in its scope. An assignment makes a variable in its own scope,
+         unless that scope has one with the name; its expression sees the variable it assigns.
+         */
+        CHECK,
+        /*
+         Like the Evaluator: a stylerule and each branch of an if-clause are scopes, the condition is
+         outside them. An assignment sets the variable of its name in the open scopes, or makes one in its own.
+         Only top-level assignments and stylerules, and the declarations, assignments and if-clauses in
+         their bodies are resolved, as only those are evaluated.
+         */
+        EVALUATE
+    }
+
+    // The innermost visible variable of a name, and the one it hides
+    private static final class Variable {
+        final int level;
+        final int slot;
+        final Variable hidden;
+
+        Variable(int level, int slot, Variable hidden) {
+            this.level = level;
+            this.slot = slot;
+            this.hidden = hidden;
+        }
+    }
+
+    private final Scoping scoping;
+    private final HashMap<String, Variable> variables = new HashMap<>();
+    // Names bound in the open scopes, in order, so they can be unbound when their scope closes
+    private final ArrayList<String> bound = new ArrayList<>();
+    // Per open scope: where its names start in bound, and how many slots it has
+    private int[] boundStart = new int[8];
+    private int[] slotCount = new int[8];
+    private int level;
+
+    private int[] bindings = new int[64];
+    private int size;
+    // The name the assignment being resolved assigns, for Scoping.CHECK
+    private String assigning;
+
+    public VariableResolver(Scoping scoping) {
+        this.scoping = scoping;
+        reset();
+    }
+
+    /*
+     Forgets all variables and opens an empty global scope, at level 0.
+     */
+    public void reset() {
+        variables.clear();
+        bound.clear();
+        level = 0;
+        boundStart[0] = 0;
+        slotCount[0] = 0;
+    }
+
+    /*
+     The bindings of node and everything in it, in the scopes left open by the nodes resolved before it.
+     Resolve the root of a tree, or its top-level nodes one by one in order.
+     */
+    public int[] resolve(ASTNode node) {
+        size = 0;
+        if (scoping == Scoping.CHECK) {
+            resolveForCheck(node);
+        } else if (node.getKind() == NodeKind.STYLESHEET) {
+            for (ASTNode child : ((Stylesheet) node).body) {
+                resolveTopLevel(child);
+            }
+        } else {
+            resolveTopLevel(node);
+        }
+        return Arrays.copyOf(bindings, size);
+    }
+
+    // In the order of Checker.checkNode, which goes through all nodes; references are only found in these
+    private void resolveForCheck(ASTNode node) {
+        switch (node.getKind()) {
+            case STYLESHEET:
+                for (ASTNode child : ((Stylesheet) node).body) {
+                    resolveForCheck(child);
+                }
+                break;
+            case STYLERULE:
+                open();
+                for (ASTNode child : ((Stylerule) node).body) {
+                    resolveForCheck(child);
+                }
+                close();
+                break;
+            case IF_CLAUSE: {
+                IfClause ifClause = (IfClause) node;
+                open();
+                int header = add(0, 0);
+                resolveExpression(ifClause.conditionalExpression);
+                for (ASTNode child : ifClause.body) {
+                    resolveForCheck(child);
+                }
+                bindings[header] = size;
+                if (ifClause.elseClause != null) {
+                    resolveForCheck(ifClause.elseClause);
+                }
+                bindings[header + 1] = size;
+                close();
+                break;
+            }
+            case ELSE_CLAUSE:
+                open();
+                for (ASTNode child : ((ElseClause) node).body) {
+                    resolveForCheck(child);
+                }
+                close();
+                break;
+            case DECLARATION:
+                resolveExpression(((Declaration) node).expression);
+                break;
+            case VARIABLE_ASSIGNMENT: {
+                VariableAssignment assignment = (VariableAssignment) node;
+                assigning = assignment.name.name;
+                resolveExpression(assignment.expression);
+                assigning = null;
+                Variable variable = variables.get(assignment.name.name);
+                if (variable == null || variable.level != level) {
+                    variable = declare(assignment.name.name, variable);
+                }
+                add(0, variable.slot);
+                break;
+            }
+            default:
+                resolveExpression(node);
+                break;
+        }
+    }
+
+    // In the order of the Evaluator
+    private void resolveTopLevel(ASTNode node) {
+        if (node.getKind() == NodeKind.VARIABLE_ASSIGNMENT) {
+            resolveAssignment((VariableAssignment) node);
+        } else if (node.getKind() == NodeKind.STYLERULE) {
+            open();
+            resolveBody(((Stylerule) node).body);
+            close();
+        }
+    }
+
+    private void resolveBody(ArrayList<ASTNode> body) {
+        for (ASTNode node : body) {
+            switch (node.getKind()) {
+                case DECLARATION:
+                    resolveExpression(((Declaration) node).expression);
+                    break;
+                case VARIABLE_ASSIGNMENT:
+                    resolveAssignment((VariableAssignment) node);
+                    break;
+                case IF_CLAUSE: {
+                    IfClause ifClause = (IfClause) node;
+                    int header = add(0, 0);
+                    resolveExpression(ifClause.conditionalExpression);
+                    open();
+                    resolveBody(ifClause.body);
+                    close();
+                    bindings[header] = size;
+                    if (ifClause.elseClause != null) {
+                        open();
+                        resolveBody(ifClause.elseClause.body);
+                        close();
+                    }
+                    bindings[header + 1] = size;
+                    break;
+                }
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void resolveAssignment(VariableAssignment assignment) {
+        resolveExpression(assignment.expression);
+        Variable variable = variables.get(assignment.name.name);
+        if (variable == null) {
+            variable = declare(assignment.name.name, null);
+        }
+        add(level - variable.level, variable.slot);
+    }
+
+    // The references in expr, left before right
+    private void resolveExpression(ASTNode expr) {
+        if (expr == null) return;
+        if (expr.getKind() == NodeKind.VARIABLE_REFERENCE) {
+            String name = ((VariableReference) expr).name;
+            Variable variable = variables.get(name);
+            if (variable != null) {
+                add(level - variable.level, variable.slot);
+            } else {
+                add(name.equals(assigning) ? SELF : UNDEFINED, 0);
+            }
+            return;
+        }
+        for (int i = 0; i < expr.childCount(); i++) {
+            resolveExpression(expr.childAt(i));
+        }
+    }
+
+    // Appends two ints, and gives the index of the first
+    private int add(int first, int second) {
+        if (size + 2 > bindings.length) {
+            bindings = Arrays.copyOf(bindings, bindings.length * 2);
+        }
+        bindings[size] = first;
+        bindings[size + 1] = second;
+        size += 2;
+        return size - 2;
+    }
+
+    private void open() {
+        level++;
+        if (level == boundStart.length) {
+            boundStart = Arrays.copyOf(boundStart, level * 2);
+            slotCount = Arrays.copyOf(slotCount, level * 2);
+        }
+        boundStart[level] = bound.size();
+        slotCount[level] = 0;
+    }
+
+    // Unbind the names of the scope, so the variables they hid are visible again
+    private void close() {
+        for (int i = bound.size() - 1; i >= boundStart[level]; i--) {
+            String name = bound.remove(i);
+            Variable hidden = variables.get(name).hidden;
+            if (hidden == null) {
+                variables.remove(name);
+            } else {
+                variables.put(name, hidden);
+            }
+        }
+        level--;
+    }
+
+    // A new variable in the current scope, hiding the one given
+    private Variable declare(String name, Variable hidden) {
+        Variable variable = new Variable(level, slotCount[level]++, hidden);
+        variables.put(name, variable);
+        bound.add(name);
+        return variable;
+    }
+}
@@ -2,52 +2,181 @@ package nl.han.ica.icss.generator;
 
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
 
+/**
+ * Writes an evaluated AST as CSS. Every call reuses the same StringBuilder, so a Generator is not
+ * thread-safe: like a CompilerContext, an instance belongs to one thread at a time.
+ */
 public class Generator {
 
+    //Reused for every stylesheet, so it only grows until it fits the largest output; see the class comment
+    private final StringBuilder builder = new StringBuilder();
+    private final CssWriter writer = new CssWriter();
+
     public String generate(AST ast) {
-        StringBuilder builder = new StringBuilder();
-        Stylesheet stylesheet = ast.root;
+        builder.setLength(0);
+        ast.root.accept(writer);
+        return builder.toString();
+    }
 
-        // Loop over all stylerules and turn them into CSS
-        for (ASTNode node : stylesheet.getChildren()) {
-            if (node instanceof Stylerule) {
-                generateStylerule((Stylerule) node, builder);
+    // Same as generate, building the nodes of only one stylerule at a time
+    public String generate(FlatTree ast) {
+        builder.setLength(0);
+        for (int node = ast.getFirstChild(FlatTree.ROOT); node != FlatTree.NONE; node = ast.getNextSibling(node)) {
+            if (ast.getKind(node) == NodeKind.STYLERULE) {
+                ast.view(node).accept(writer);
             }
         }
         return builder.toString();
     }
 
-    // Make a CSS block for a rule
-    private void generateStylerule(Stylerule rule, StringBuilder builder) {
-        // Selector like: p, #id, .class
-        builder.append(rule.selectors.get(0).toString());
-        builder.append(" {\n");
+    // Convert a literal to string, so we can print it in CSS
+    public static String literalToString(Literal literal) {
+        switch (literal.getKind()) {
+            case PIXEL_LITERAL: return ((PixelLiteral) literal).value + "px";
+            case PERCENTAGE_LITERAL: return ((PercentageLiteral) literal).value + "%";
+            case COLOR_LITERAL: return ((ColorLiteral) literal).value;
+            case BOOL_LITERAL: return ((BoolLiteral) literal).value ? "true" : "false";
+            default: return Integer.toString(((ScalarLiteral) literal).value);
+        }
+    }
+
+    /*
+     Appends the CSS of the nodes it visits to the builder. Variable assignments and if-clauses have no
+     CSS of their own and are skipped; an evaluated tree has none left anyway. Expressions must have been
+     evaluated to literals.
+     */
+    private class CssWriter implements ASTVisitor<Void> {
 
-        for (ASTNode child : rule.body) {
-            if (child instanceof Declaration) {
-                generateDeclaration((Declaration) child, builder);
+        @Override
+        public Void visitStylesheet(Stylesheet node) {
+            for (ASTNode child : node.body) {
+                child.accept(this);
             }
+            return null;
         }
 
-        builder.append("}\n\n"); // close the block
-    }
+        // Make a CSS block for a rule
+        @Override
+        public Void visitStylerule(Stylerule node) {
+            // Selector like: p, #id, .class
+            node.selectors.get(0).accept(this);
+            builder.append(" {\n");
+            for (ASTNode child : node.body) {
+                child.accept(this);
+            }
+            builder.append("}\n\n"); // close the block
+            return null;
+        }
 
-    // Turn a declaration into CSS text
-    private void generateDeclaration(Declaration decl, StringBuilder builder) {
-        builder.append("  "); // indent 2 spaces
-        builder.append(decl.property.name);
-        builder.append(": ");
-        builder.append(literalToString((Literal) decl.expression));
-        builder.append(";\n"); // end with semicolon
-    }
+        @Override
+        public Void visitTagSelector(TagSelector node) {
+            builder.append(node.tag);
+            return null;
+        }
 
-    // Convert a literal to string, so we can print it in CSS
-    private String literalToString(Literal literal) {
-        if (literal instanceof PixelLiteral) return ((PixelLiteral) literal).value + "px";
-        if (literal instanceof PercentageLiteral) return ((PercentageLiteral) literal).value + "%";
-        if (literal instanceof ColorLiteral) return ((ColorLiteral) literal).value;
-        if (literal instanceof BoolLiteral) return ((BoolLiteral) literal).value ? "true" : "false";
-        return Integer.toString(((ScalarLiteral) literal).value);
+        @Override
+        public Void visitClassSelector(ClassSelector node) {
+            builder.append(node.cls);
+            return null;
+        }
+
+        @Override
+        public Void visitIdSelector(IdSelector node) {
+            builder.append(node.id);
+            return null;
+        }
+
+        // Turn a declaration into CSS text
+        @Override
+        public Void visitDeclaration(Declaration node) {
+            builder.append("  "); // indent 2 spaces
+            node.property.accept(this);
+            builder.append(": ");
+            node.expression.accept(this);
+            builder.append(";\n"); // end with semicolon
+            return null;
+        }
+
+        @Override
+        public Void visitPropertyName(PropertyName node) {
+            builder.append(node.name);
+            return null;
+        }
+
+        @Override
+        public Void visitVariableAssignment(VariableAssignment node) {
+            return null;
+        }
+
+        @Override
+        public Void visitIfClause(IfClause node) {
+            return null;
+        }
+
+        @Override
+        public Void visitElseClause(ElseClause node) {
+            return null;
+        }
+
+        @Override
+        public Void visitVariableReference(VariableReference node) {
+            throw notEvaluated(node);
+        }
+
+        @Override
+        public Void visitAddOperation(AddOperation node) {
+            throw notEvaluated(node);
+        }
+
+        @Override
+        public Void visitSubtractOperation(SubtractOperation node) {
+            throw notEvaluated(node);
+        }
+
+        @Override
+        public Void visitMultiplyOperation(MultiplyOperation node) {
+            throw notEvaluated(node);
+        }
+
+        @Override
+        public Void visitBoolLiteral(BoolLiteral node) {
+            builder.append(node.value ? "true" : "false");
+            return null;
+        }
+
+        @Override
+        public Void visitColorLiteral(ColorLiteral node) {
+            builder.append(node.value);
+            return null;
+        }
+
+        @Override
+        public Void visitPercentageLiteral(PercentageLiteral node) {
+            builder.append(node.value).append('%');
+            return null;
+        }
+
+        @Override
+        public Void visitPixelLiteral(PixelLiteral node) {
+            builder.append(node.value).append("px");
+            return null;
+        }
+
+        @Override
+        public Void visitScalarLiteral(ScalarLiteral node) {
+            builder.append(node.value);
+            return null;
+        }
+
+        private IllegalArgumentException notEvaluated(Expression expression) {
+            return new IllegalArgumentException("Not evaluated, cannot be generated: " + expression.getNodeLabel());
+        }
     }
 }
@@ -55,8 +55,8 @@ public class ASTPane extends BorderPane {
         TreeItem<ASTNode> tvNode = new TreeItem<ASTNode>(astNode);
         tvNode.setExpanded(true);
 
-        for(ASTNode child : astNode.getChildren()) {
-            tvNode.getChildren().add(astNodeToTreeItem(child));
+        for(int i = 0; i < astNode.childCount(); i++) {
+            tvNode.getChildren().add(astNodeToTreeItem(astNode.childAt(i)));
         }
         return tvNode;
     }
@@ -4,23 +4,37 @@ package nl.han.ica.icss.gui;
 import java.io.*;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
 import javafx.geometry.Insets;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.control.TextArea;
+import javafx.scene.control.TextFormatter;
 import javafx.scene.control.Label;
+import nl.han.ica.icss.parser.TextEdit;
 
 @SuppressWarnings("restriction")
 public class InputPane extends BorderPane {
 	private TextArea content;
 	private Label title;
+
+	//Edits made since the last takeEdits, so the text can be parsed incrementally
+	private List<TextEdit> edits = new ArrayList<>();
 	
 	public InputPane() {
 		super();
 		
 		title = new Label("Input (ICSS):");
 		content = new TextArea();
+		content.setTextFormatter(new TextFormatter<String>(change -> {
+			if (change.isContentChange()) {
+				edits.add(new TextEdit(change.getRangeStart(),
+						change.getRangeEnd() - change.getRangeStart(), change.getText()));
+			}
+			return change;
+		}));
 		title.setPadding(new Insets(5, 5, 5, 5));
 		
 		this.setTop(title);
@@ -39,4 +53,9 @@ public class InputPane extends BorderPane {
 	public String getText() {
 		return content.getText();
 	}
+	public List<TextEdit> takeEdits() {
+		List<TextEdit> taken = edits;
+		edits = new ArrayList<>();
+		return taken;
+	}
 }
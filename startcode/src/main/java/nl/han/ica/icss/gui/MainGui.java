@@ -46,6 +46,7 @@ public class MainGui extends Application {
 
     //Model
     private Pipeline pipeline;
+    private boolean parsedBefore = false;
 
 
     @Override
@@ -194,7 +195,14 @@ public class MainGui extends Application {
     private void parse() {
         clear();
         feedbackPane.addLine("Parsing...");
-        pipeline.parseString(inputPane.getText());
+        //Only the first parse reads the whole input, after that only the edits are parsed
+        if (parsedBefore) {
+            pipeline.parseEdits(inputPane.takeEdits());
+        } else {
+            inputPane.takeEdits();
+            pipeline.parseIncremental(inputPane.getText());
+            parsedBefore = true;
+        }
         for(String e : pipeline.getErrors()) {
             feedbackPane.addLine(e);
         }
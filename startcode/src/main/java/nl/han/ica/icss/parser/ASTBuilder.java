@@ -0,0 +1,238 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.datastructures.HANStack;
+import nl.han.ica.datastructures.IHANStack;
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+/**
+ * This class builds the ICSS Abstract Syntax Tree while the parser is running.
+ * Register it with Parser.addParseListener and turn off parse tree building: the parser
+ * still attaches the matched tokens to the current rule context, but never the sub-rules,
+ * so everything is built from tokens and from the exit events of the sub-rules.
+ *
+ * The stylesheet exists from the start, so the builder can also be used while parsing
+ * single top-level rules (variableAssignment or stylerule) instead of a whole stylesheet.
+ *
+ * Every node but the literals gets the span of its tokens, with the character indexes of the input.
+ *
+ * A number too big for an int is a syntax error, reported to the listeners of the parser given
+ * with setParser, like the errors the parser finds itself.
+ */
+public class ASTBuilder extends ICSSBaseListener {
+
+    //Accumulator attributes:
+    private AST ast;
+
+    //Nodes that are still receiving children: the stylesheet, stylerules, if and else clauses
+    private IHANStack<ASTNode> stack;
+
+    //Finished expressions that have not been attached to their parent yet
+    private IHANStack<Expression> expressions;
+
+    //Numbers and interned names straight from the tokens
+    private TokenDecoder decoder;
+
+    //The parser the builder listens to, null if it was not set
+    private Parser parser;
+
+    public ASTBuilder() {
+        stack = new HANStack<>();
+        expressions = new HANStack<>();
+        decoder = new TokenDecoder();
+        reset();
+    }
+
+    /**
+     * Starts over with a new, empty AST, so the builder can be reused for the next parse.
+     * The interned names are kept.
+     */
+    public void reset() {
+        ast = new AST();
+        stack.clear();
+        expressions.clear();
+        stack.push(ast.root);
+    }
+    public AST getAST() {
+        return ast;
+    }
+    /**
+     * @param parser the parser this builder is registered with, which syntax errors found while
+     *               building are reported to; without one such an error cancels the parse
+     */
+    public void setParser(Parser parser) {
+        this.parser = parser;
+    }
+
+    // --- Style rules ---
+    @Override
+    public void enterStylerule(ICSSParser.StyleruleContext ctx) {
+        stack.push(new Stylerule());
+    }
+
+    @Override
+    public void exitStylerule(ICSSParser.StyleruleContext ctx) {
+        Stylerule stylerule = (Stylerule) stack.pop();
+        span(stylerule, ctx);
+        stack.peek().addChild(stylerule);
+    }
+
+    // --- Selector ---
+    @Override
+    public void exitSelector(ICSSParser.SelectorContext ctx) {
+        Token token = ctx.getStart();
+        Selector selector = null;
+        if (token.getType() == ICSSLexer.ID_IDENT) {
+            selector = new IdSelector(decoder.name(token));
+        } else if (token.getType() == ICSSLexer.CLASS_IDENT) {
+            selector = new ClassSelector(decoder.name(token));
+        } else if (token.getType() == ICSSLexer.LOWER_IDENT) {
+            selector = new TagSelector(decoder.name(token));
+        }
+        if (selector != null) {
+            span(selector, token);
+            stack.peek().addChild(selector);
+        }
+    }
+
+    // --- Variable Assignment ---
+    @Override
+    public void exitVariableAssignment(ICSSParser.VariableAssignmentContext ctx) {
+        VariableAssignment assignment = new VariableAssignment();
+        if (ctx.CAPITAL_IDENT() != null) {
+            assignment.name = new VariableReference(decoder.name(ctx.CAPITAL_IDENT().getSymbol()));
+            span(assignment.name, ctx.CAPITAL_IDENT().getSymbol());
+        }
+        assignment.expression = popExpression();
+        span(assignment, ctx);
+        stack.peek().addChild(assignment);
+    }
+
+    // --- Declaration ---
+    @Override
+    public void exitDeclaration(ICSSParser.DeclarationContext ctx) {
+        Declaration declaration = new Declaration();
+        if (ctx.LOWER_IDENT() != null) {
+            declaration.property = new PropertyName(decoder.name(ctx.LOWER_IDENT().getSymbol()));
+            span(declaration.property, ctx.LOWER_IDENT().getSymbol());
+        }
+        declaration.expression = popExpression();
+        span(declaration, ctx);
+        stack.peek().addChild(declaration);
+    }
+
+    // --- IfClause ---
+    @Override
+    public void enterIfClause(ICSSParser.IfClauseContext ctx) {
+        stack.push(new IfClause());
+    }
+
+    @Override
+    public void exitIfClause(ICSSParser.IfClauseContext ctx) {
+        IfClause ifNode = (IfClause) stack.pop();
+        //The body took its own expressions, what is left is the condition
+        ifNode.conditionalExpression = popExpression();
+        span(ifNode, ctx);
+        stack.peek().addChild(ifNode);
+    }
+
+    // --- ElseClause ---
+    @Override
+    public void enterElseClause(ICSSParser.ElseClauseContext ctx) {
+        stack.push(new ElseClause());
+    }
+
+    @Override
+    public void exitElseClause(ICSSParser.ElseClauseContext ctx) {
+        ElseClause elseNode = (ElseClause) stack.pop();
+        span(elseNode, ctx);
+        stack.peek().addChild(elseNode);
+    }
+
+    // --- Expression ---
+    @Override
+    public void exitExpression(ICSSParser.ExpressionContext ctx) {
+        Operation operation;
+        if (ctx.MUL() != null) {
+            operation = new MultiplyOperation();
+        } else if (ctx.PLUS() != null) {
+            operation = new AddOperation();
+        } else if (ctx.MIN() != null) {
+            operation = new SubtractOperation();
+        } else {
+            return; // a single value, already on the expression stack
+        }
+        Expression rhs = popExpression();
+        operation.lhs = popExpression();
+        operation.rhs = rhs;
+        span(operation, ctx);
+        expressions.push(operation);
+    }
+
+    // --- Value ---
+    @Override
+    public void exitValue(ICSSParser.ValueContext ctx) {
+        Expression expression = null;
+
+        if (ctx.COLOR() != null) {
+            expression = ColorLiteral.valueOf(decoder.name(ctx.COLOR().getSymbol()));
+        } else if (ctx.PIXELSIZE() != null) {
+            expression = PixelLiteral.valueOf(number(ctx.PIXELSIZE().getSymbol()));
+        } else if (ctx.PERCENTAGE() != null) {
+            expression = PercentageLiteral.valueOf(number(ctx.PERCENTAGE().getSymbol()));
+        } else if (ctx.TRUE() != null) {
+            expression = BoolLiteral.valueOf(true);
+        } else if (ctx.FALSE() != null) {
+            expression = BoolLiteral.valueOf(false);
+        } else if (ctx.SCALAR() != null) {
+            expression = ScalarLiteral.valueOf(number(ctx.SCALAR().getSymbol()));
+        } else if (ctx.CAPITAL_IDENT() != null) {
+            expression = new VariableReference(decoder.name(ctx.CAPITAL_IDENT().getSymbol()));
+            span(expression, ctx.CAPITAL_IDENT().getSymbol());
+        }
+
+        expressions.push(expression);
+    }
+
+    //The same message as the RecursiveDescentParser gives
+    private int number(Token token) {
+        int number = decoder.number(token);
+        if (number < 0) {
+            String message = "number out of range '" + token.getText() + "'";
+            if (parser == null) {
+                throw new ParseCancellationException(message);
+            }
+            parser.notifyErrorListeners(token, message, null);
+        }
+        return number;
+    }
+
+    //From the first to the last token of the rule; tokens made up by error recovery have no index
+    private static void span(ASTNode node, ParserRuleContext ctx) {
+        Token stop = ctx.getStop();
+        int start = ctx.getStart().getStartIndex();
+        if (start >= 0 && stop != null && stop.getStopIndex() >= start) {
+            node.setSpan(start, stop.getStopIndex() + 1 - start);
+        }
+    }
+    private static void span(ASTNode node, Token token) {
+        if (token.getStartIndex() >= 0) {
+            node.setSpan(token.getStartIndex(), token.getStopIndex() + 1 - token.getStartIndex());
+        }
+    }
+
+    //After a syntax error an expression can be missing, the AST is discarded then anyway
+    private Expression popExpression() {
+        return expressions.isEmpty() ? null : expressions.pop();
+    }
+}
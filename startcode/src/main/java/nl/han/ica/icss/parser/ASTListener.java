@@ -22,9 +22,13 @@ public class ASTListener extends ICSSBaseListener {
 	//Use this to keep track of the parent nodes when recursively traversing the ast
 	private IHANStack<ASTNode> stack;
 
+	//Numbers and interned names straight from the tokens
+	private TokenDecoder decoder;
+
 	public ASTListener() {
 		ast = new AST();
 		stack = new HANStack<>();
+		decoder = new TokenDecoder();
 
 	}
     public AST getAST() {
@@ -59,11 +63,11 @@ public class ASTListener extends ICSSBaseListener {
         Selector selector = null;
 
         if (ctx.ID_IDENT() != null) {
-            selector = new IdSelector(ctx.ID_IDENT().getText());
+            selector = new IdSelector(decoder.name(ctx.ID_IDENT().getSymbol()));
         } else if (ctx.CLASS_IDENT() != null) {
-            selector = new ClassSelector(ctx.CLASS_IDENT().getText());
+            selector = new ClassSelector(decoder.name(ctx.CLASS_IDENT().getSymbol()));
         } else if (ctx.LOWER_IDENT() != null) {
-            selector = new TagSelector(ctx.LOWER_IDENT().getText());
+            selector = new TagSelector(decoder.name(ctx.LOWER_IDENT().getSymbol()));
         }
 
         stack.peek().addChild(selector);
@@ -73,7 +77,7 @@ public class ASTListener extends ICSSBaseListener {
     @Override
     public void enterVariableAssignment(ICSSParser.VariableAssignmentContext ctx) {
         VariableAssignment assignment = new VariableAssignment();
-        assignment.name = new VariableReference(ctx.CAPITAL_IDENT().getText());
+        assignment.name = new VariableReference(decoder.name(ctx.CAPITAL_IDENT().getSymbol()));
         stack.push(assignment);
     }
 
@@ -87,7 +91,7 @@ public class ASTListener extends ICSSBaseListener {
     @Override
     public void enterDeclaration(ICSSParser.DeclarationContext ctx) {
         Declaration declaration = new Declaration();
-        declaration.property = new PropertyName(ctx.LOWER_IDENT().getText());
+        declaration.property = new PropertyName(decoder.name(ctx.LOWER_IDENT().getSymbol()));
         stack.push(declaration);
     }
 
@@ -129,12 +133,11 @@ public class ASTListener extends ICSSBaseListener {
         }
         Expression expression = null;
 
-        String operation = ctx.getChild(1).getText();
-        if (operation.equals("+")) {
+        if (ctx.PLUS() != null) {
             expression = new AddOperation();
-        } else if (operation.equals("-")) {
+        } else if (ctx.MIN() != null) {
             expression = new SubtractOperation();
-        } else if (operation.equals("*")) {
+        } else if (ctx.MUL() != null) {
             expression = new MultiplyOperation();
         }
 
@@ -155,19 +158,19 @@ public class ASTListener extends ICSSBaseListener {
         ASTNode node = null;
 
         if (ctx.COLOR() != null) {
-            node = new ColorLiteral(ctx.COLOR().getText());
+            node = ColorLiteral.valueOf(decoder.name(ctx.COLOR().getSymbol()));
         } else if (ctx.PIXELSIZE() != null) {
-            node = new PixelLiteral(ctx.PIXELSIZE().getText());
+            node = PixelLiteral.valueOf(decoder.number(ctx.PIXELSIZE().getSymbol()));
         } else if (ctx.PERCENTAGE() != null) {
-            node = new PercentageLiteral(ctx.PERCENTAGE().getText());
+            node = PercentageLiteral.valueOf(decoder.number(ctx.PERCENTAGE().getSymbol()));
         } else if (ctx.TRUE() != null) {
-            node = new BoolLiteral(true);
+            node = BoolLiteral.valueOf(true);
         } else if (ctx.FALSE() != null) {
-            node = new BoolLiteral(false);
+            node = BoolLiteral.valueOf(false);
         } else if (ctx.SCALAR() != null) {
-            node = new ScalarLiteral(ctx.SCALAR().getText());
+            node = ScalarLiteral.valueOf(decoder.number(ctx.SCALAR().getSymbol()));
         } else if (ctx.CAPITAL_IDENT() != null) {
-            node = new VariableReference(ctx.CAPITAL_IDENT().getText());
+            node = new VariableReference(decoder.name(ctx.CAPITAL_IDENT().getSymbol()));
         }
 
         stack.peek().addChild(node);
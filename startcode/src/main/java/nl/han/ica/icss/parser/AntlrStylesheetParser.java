@@ -0,0 +1,82 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.AST;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.function.Function;
+
+/**
+ * The parser engine generated by Antlr from ICSS.g4, with the AST built while parsing.
+ */
+public class AntlrStylesheetParser implements StylesheetParser {
+
+    @Override
+    public AST parse(String input, ANTLRErrorListener errorListener) {
+
+        //Lex (with Antlr's generated lexer)
+        ICSSLexer lexer = new ICSSLexer(CharStreams.fromString(input));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errorListener);
+
+        //Parse (with Antlr's generated parser)
+        ICSSParser parser = new ICSSParser(new CommonTokenStream(lexer));
+        parser.setBuildParseTree(false);
+
+        //Build the AST while parsing, no parse tree is kept in memory
+        return parseTwoStage(parser, errorListener, ICSSParser::stylesheet);
+    }
+
+    /*
+     Parses a rule with the cheap SLL prediction mode first, bailing out on the first error.
+     Only if that fails is the rule parsed again from the same token in full LL mode, with
+     the normal error recovery and reporting to the error listener. SLL fails for every syntax
+     error, a number the ASTBuilder reports as out of range included, but also for the rare
+     input it cannot predict correctly, so errors are only ever reported by the second stage.
+     Each stage builds its own AST, the partial AST of a failed SLL attempt is dropped.
+     */
+    public static AST parseTwoStage(ICSSParser parser, ANTLRErrorListener errorListener,
+                                    Function<ICSSParser, ParserRuleContext> rule) {
+        return parseTwoStage(parser, errorListener, rule, new ASTBuilder());
+    }
+
+    //Same, but with a builder that is reset for every stage, so it can be reused across parses
+    public static AST parseTwoStage(ICSSParser parser, ANTLRErrorListener errorListener,
+                                    Function<ICSSParser, ParserRuleContext> rule, ASTBuilder builder) {
+        TokenStream tokens = parser.getTokenStream();
+        tokens.LA(1); // fetch the first token, so index() points at it
+        int marker = tokens.mark();
+        int start = tokens.index();
+        try {
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.setErrorHandler(new BailErrorStrategy());
+            parser.removeErrorListeners();
+            int errors = parser.getNumberOfSyntaxErrors();
+            try {
+                AST ast = buildAST(parser, rule, builder);
+                if (parser.getNumberOfSyntaxErrors() == errors) {
+                    return ast;
+                }
+            } catch (ParseCancellationException e) {
+                //parsed again below
+            }
+            tokens.seek(start);
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.addErrorListener(errorListener);
+            return buildAST(parser, rule, builder);
+        } finally {
+            tokens.release(marker);
+        }
+    }
+
+    private static AST buildAST(ICSSParser parser, Function<ICSSParser, ParserRuleContext> rule, ASTBuilder builder) {
+        builder.reset();
+        builder.setParser(parser);
+        parser.removeParseListeners();
+        parser.addParseListener(builder);
+        rule.apply(parser);
+        return builder.getAST();
+    }
+}
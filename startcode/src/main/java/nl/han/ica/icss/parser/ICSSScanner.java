@@ -0,0 +1,226 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.Token;
+
+/**
+ * A hand-written lexer for ICSS that recognises the same tokens as the generated ICSSLexer,
+ * with the same longest-match rules, and uses the same token types.
+ *
+ * There are no token objects: the scanner only holds the current token (its type and where it is
+ * in the input) and moves on with next(). Text is only taken from the input when it is asked for.
+ */
+public class ICSSScanner {
+
+    private final String input;
+    private final ANTLRErrorListener errorListener;
+    private final NameTable names = new NameTable();
+    private char[] buffer = new char[32];
+
+    //Position of the next character to look at
+    private int pos = 0;
+    private int currentLine = 1;
+    private int currentLineStart = 0;
+
+    //The current token
+    private int type;
+    private int start;
+    private int end;
+    private int line;
+    private int column;
+
+    public ICSSScanner(String input, ANTLRErrorListener errorListener) {
+        this.input = input;
+        this.errorListener = errorListener;
+        next();
+    }
+
+    public int getType() {
+        return type;
+    }
+    public int getStart() {
+        return start;
+    }
+    public int getEnd() {
+        return end;
+    }
+    public int getLine() {
+        return line;
+    }
+    public int getColumn() {
+        return column;
+    }
+    public String getText() {
+        return type == Token.EOF ? "<EOF>" : input.substring(start, end);
+    }
+
+    /**
+     * @return the text of the current identifier or COLOR token, interned
+     */
+    public String getName() {
+        int length = end - start;
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        input.getChars(start, end, buffer, 0);
+        return names.intern(buffer, 0, length);
+    }
+
+    /**
+     * Decodes the digits of the current PIXELSIZE, PERCENTAGE or SCALAR token without taking its text.
+     * @return the number, or -1 if it does not fit in an int
+     */
+    public int getNumber() {
+        int value = 0;
+        for (int i = start; i < end && isDigit(input.charAt(i)); i++) {
+            int digit = input.charAt(i) - '0';
+            if (value > (Integer.MAX_VALUE - digit) / 10) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Moves on to the next token. Characters no token can start with are reported and skipped,
+     * just like the generated lexer does.
+     */
+    public void next() {
+        while (true) {
+            skipWhitespace();
+            start = pos;
+            line = currentLine;
+            column = pos - currentLineStart;
+            if (pos >= input.length()) {
+                type = Token.EOF;
+                end = pos;
+                return;
+            }
+            type = scanToken();
+            if (type != Token.INVALID_TYPE) {
+                end = pos;
+                return;
+            }
+            pos = start + 1;
+            errorListener.syntaxError(null, null, line, column,
+                    "token recognition error at: '" + input.charAt(start) + "'", null);
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < input.length()) {
+            char c = input.charAt(pos);
+            if (c == '\n') {
+                currentLine++;
+                currentLineStart = pos + 1;
+            } else if (c != ' ' && c != '\t' && c != '\r') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    //Scans one token starting at pos and leaves pos after it
+    private int scanToken() {
+        char c = input.charAt(pos++);
+        switch (c) {
+            case '[': return ICSSLexer.BOX_BRACKET_OPEN;
+            case ']': return ICSSLexer.BOX_BRACKET_CLOSE;
+            case '{': return ICSSLexer.OPEN_BRACE;
+            case '}': return ICSSLexer.CLOSE_BRACE;
+            case ';': return ICSSLexer.SEMICOLON;
+            case '+': return ICSSLexer.PLUS;
+            case '-': return ICSSLexer.MIN;
+            case '*': return ICSSLexer.MUL;
+            case ':':
+                if (pos < input.length() && input.charAt(pos) == '=') {
+                    pos++;
+                    return ICSSLexer.ASSIGNMENT_OPERATOR;
+                }
+                return ICSSLexer.COLON;
+            case '#':
+                return scanHash();
+            case '.':
+                return skipLowerIdentChars() > 0 ? ICSSLexer.CLASS_IDENT : Token.INVALID_TYPE;
+        }
+        if (isDigit(c)) {
+            return scanNumber();
+        }
+        if (c >= 'a' && c <= 'z') {
+            skipLowerIdentChars();
+            return keywordOr(ICSSLexer.LOWER_IDENT);
+        }
+        if (c >= 'A' && c <= 'Z') {
+            while (pos < input.length() && isCapitalIdentChar(input.charAt(pos))) {
+                pos++;
+            }
+            return keywordOr(ICSSLexer.CAPITAL_IDENT);
+        }
+        return Token.INVALID_TYPE;
+    }
+
+    //A colour is exactly six hex digits, anything longer (or not hex) is an id
+    private int scanHash() {
+        int length = skipLowerIdentChars();
+        if (length == 0) {
+            return Token.INVALID_TYPE;
+        }
+        if (length == 6) {
+            boolean hex = true;
+            for (int i = pos - 6; i < pos; i++) {
+                char c = input.charAt(i);
+                hex &= isDigit(c) || (c >= 'a' && c <= 'f');
+            }
+            if (hex) {
+                return ICSSLexer.COLOR;
+            }
+        }
+        return ICSSLexer.ID_IDENT;
+    }
+
+    private int scanNumber() {
+        while (pos < input.length() && isDigit(input.charAt(pos))) {
+            pos++;
+        }
+        if (input.startsWith("px", pos)) {
+            pos += 2;
+            return ICSSLexer.PIXELSIZE;
+        }
+        if (pos < input.length() && input.charAt(pos) == '%') {
+            pos++;
+            return ICSSLexer.PERCENTAGE;
+        }
+        return ICSSLexer.SCALAR;
+    }
+
+    //Keywords win from identifiers of the same length, like the lexer rules listed first do
+    private int keywordOr(int identType) {
+        int length = pos - start;
+        if (length == 2 && input.startsWith("if", start)) return ICSSLexer.IF;
+        if (length == 4 && input.startsWith("else", start)) return ICSSLexer.ELSE;
+        if (length == 4 && input.startsWith("TRUE", start)) return ICSSLexer.TRUE;
+        if (length == 5 && input.startsWith("FALSE", start)) return ICSSLexer.FALSE;
+        return identType;
+    }
+
+    private int skipLowerIdentChars() {
+        int from = pos;
+        while (pos < input.length()) {
+            char c = input.charAt(pos);
+            if (!((c >= 'a' && c <= 'z') || isDigit(c) || c == '-')) {
+                break;
+            }
+            pos++;
+        }
+        return pos - from;
+    }
+
+    private static boolean isCapitalIdentChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || isDigit(c) || c == '_';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,201 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the AST of a text up to date while the text is being edited.
+ *
+ * The text is divided into regions, one per top-level rule (a variableAssignment or stylerule),
+ * found with the same brace matching as the StylesheetSplitter. Every region is parsed on its own.
+ * After an edit only the regions from the one the edit starts in up to the first unchanged region
+ * boundary behind the edit are parsed again; the Stylerule and VariableAssignment nodes of all
+ * other regions are reused, with their spans moved when the edit changed the length of the text.
+ *
+ * Reused nodes must not have been changed since they were parsed (by the Checker or a Transform),
+ * call invalidate after that to have the next edit parse the whole text again.
+ */
+public class IncrementalParser {
+
+    private final StylesheetParser parser;
+
+    private String text = "";
+
+    //Regions in source order, together covering the whole text. Null if nothing can be reused.
+    private ArrayList<Region> regions;
+
+    public IncrementalParser(StylesheetParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Parses the whole text, remembering the regions for later edits.
+     * @param text the ICSS source
+     * @return the AST of the text
+     */
+    public AST parse(String text) {
+        this.text = text;
+        regions = new ArrayList<>();
+        for (int start = 0; start < text.length(); ) {
+            int end = StylesheetSplitter.nextBoundary(text, start);
+            regions.add(parseRegion(start, end));
+            start = end;
+        }
+        return buildAST();
+    }
+
+    /**
+     * Applies an edit to the text and parses only the top-level rules it affects.
+     * @param edit the change to the text parsed before
+     * @return the AST of the edited text
+     */
+    public AST edit(TextEdit edit) {
+        String oldText = text;
+        text = edit.applyTo(oldText);
+        if (regions == null || regions.isEmpty()) {
+            return parse(text);
+        }
+        int delta = edit.insertedText.length() - edit.removedLength;
+        int oldEditEnd = edit.offset + edit.removedLength;
+
+        //The first region the edit can change: the one containing the offset. Text appended at the
+        //end can still belong to the last region, if that rule was not closed.
+        int first = firstRegionEndingAfter(edit.offset);
+        if (first == regions.size()) {
+            first--;
+        }
+
+        //Reparse until a new region boundary behind the edit coincides with an old one.
+        //From there on the brace matching (and so every region) is the same as before.
+        ArrayList<Region> reparsed = new ArrayList<>();
+        int next = first + 1;
+        int position = regions.get(first).start;
+        while (position < text.length()) {
+            int end = StylesheetSplitter.nextBoundary(text, position);
+            reparsed.add(parseRegion(position, end));
+            position = end;
+            while (next < regions.size()
+                    && (regions.get(next).start < oldEditEnd || regions.get(next).start + delta < position)) {
+                next++;
+            }
+            if (next < regions.size() && regions.get(next).start + delta == position) {
+                break;
+            }
+        }
+        if (position >= text.length()) {
+            next = regions.size();
+        }
+
+        ArrayList<Region> updated = new ArrayList<>(first + reparsed.size() + regions.size() - next);
+        updated.addAll(regions.subList(0, first));
+        updated.addAll(reparsed);
+        for (Region region : regions.subList(next, regions.size())) {
+            region.start += delta;
+            region.end += delta;
+            if (delta != 0) {
+                for (ASTNode node : region.nodes) {
+                    node.moveSpans(delta);
+                }
+            }
+            updated.add(region);
+        }
+        regions = updated;
+        return buildAST();
+    }
+
+    /**
+     * Forgets the parsed regions, so the next edit parses the whole text again.
+     */
+    public void invalidate() {
+        regions = null;
+    }
+
+    /**
+     * @return true if invalidate was called after the last parse, so the last AST may have been changed
+     */
+    public boolean isInvalidated() {
+        return regions == null;
+    }
+
+    /**
+     * @return the syntax errors of the current text, in source order
+     */
+    public List<String> getErrors() {
+        List<String> errors = new ArrayList<>();
+        if (regions != null) {
+            for (Region region : regions) {
+                errors.addAll(region.errors);
+            }
+        }
+        return errors;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    private int firstRegionEndingAfter(int offset) {
+        int low = 0;
+        int high = regions.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (regions.get(middle).end > offset) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private Region parseRegion(int start, int end) {
+        Region region = new Region(start, end);
+        try {
+            region.nodes = parser.parse(text.substring(start, end), region).root.body;
+            for (ASTNode node : region.nodes) {
+                node.moveSpans(start); // from the start of the region to the start of the text
+            }
+
+        } catch (RecognitionException e) {
+            region.errors.add(e.getMessage());
+
+        } catch (ParseCancellationException e) {
+            region.errors.add("Syntax error");
+        }
+        return region;
+    }
+
+    private AST buildAST() {
+        AST ast = new AST();
+        for (Region region : regions) {
+            ast.root.body.addAll(region.nodes);
+        }
+        return ast;
+    }
+
+    //A top-level rule of the text, with the nodes and syntax errors it parsed into
+    private static class Region extends BaseErrorListener {
+        private int start;
+        private int end;
+        private List<ASTNode> nodes = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+
+        Region(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                int charPositionInLine, String msg, RecognitionException e) {
+            errors.add("Syntax error: " + msg);
+        }
+    }
+}
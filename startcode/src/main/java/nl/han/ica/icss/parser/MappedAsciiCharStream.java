@@ -0,0 +1,96 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A CharStream that feeds the lexer straight from the bytes of a (memory-mapped) buffer.
+ * All ICSS tokens are ASCII, so every byte is one character and nothing needs to be decoded
+ * or copied up front. Text is only materialised when a token asks for it.
+ */
+public class MappedAsciiCharStream implements CharStream {
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final String name;
+
+    //Index of the next character to consume
+    private int p = 0;
+
+    public MappedAsciiCharStream(ByteBuffer buffer, String name) {
+        this.buffer = buffer;
+        this.size = buffer.limit();
+        this.name = name;
+    }
+
+    @Override
+    public void consume() {
+        if (p >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        p++;
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) {
+            return 0; // undefined
+        }
+        int index = i > 0 ? p + i - 1 : p + i;
+        if (index < 0 || index >= size) {
+            return IntStream.EOF;
+        }
+        return buffer.get(index) & 0xff;
+    }
+
+    //The whole input stays mapped, so marking is free
+    @Override
+    public int mark() {
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return p;
+    }
+
+    @Override
+    public void seek(int index) {
+        p = Math.min(Math.max(index, 0), size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return name == null || name.isEmpty() ? UNKNOWN_SOURCE_NAME : name;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = Math.max(interval.a, 0);
+        int stop = Math.min(interval.b, size - 1);
+        if (start > stop) {
+            return "";
+        }
+        byte[] bytes = new byte[stop - start + 1];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+}
@@ -0,0 +1,85 @@
+package nl.han.ica.icss.parser;
+
+/**
+ * Interns the names in a stylesheet (properties, selectors, variables and colours), so every
+ * occurrence of the same name shares one String. Names are looked up straight from a range of
+ * characters, so a name that was seen before costs no allocation at all.
+ *
+ * The table is an open-addressing hash table that only grows; it is not thread-safe.
+ */
+public class NameTable {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Returns the interned name with the given characters, adding it if it is new.
+     * @param chars buffer holding the name
+     * @param offset index of the first character
+     * @param length number of characters
+     * @return the one String instance for these characters
+     */
+    public String intern(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int mask = names.length - 1;
+        int slot = spread(hash) & mask;
+        for (String name = names[slot]; name != null; name = names[slot]) {
+            if (hashes[slot] == hash && sameChars(name, chars, offset, length)) {
+                return name;
+            }
+            slot = (slot + 1) & mask;
+        }
+        String name = new String(chars, offset, length);
+        names[slot] = name;
+        hashes[slot] = hash;
+        if (++size * 2 > names.length) {
+            grow();
+        }
+        return name;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        String[] oldNames = names;
+        int[] oldHashes = hashes;
+        names = new String[oldNames.length * 2];
+        hashes = new int[oldNames.length * 2];
+        int mask = names.length - 1;
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) {
+                int slot = spread(oldHashes[i]) & mask;
+                while (names[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                names[slot] = oldNames[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    private static boolean sameChars(String name, char[] chars, int offset, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Mix the high bits in, short names differ mostly in their last characters
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
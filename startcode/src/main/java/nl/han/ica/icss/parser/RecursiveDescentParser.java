@@ -0,0 +1,290 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.Token;
+
+/**
+ * A hand-written parser engine for ICSS that builds the same AST as the Antlr engine,
+ * without the Antlr runtime's start-up cost (ATN deserialization, DFA warm-up) or any
+ * parse tree contexts. Every rule of ICSS.g4 is one method; the grammar is LL(1) apart from
+ * expressions, which are parsed with one method per precedence level.
+ *
+ * On a syntax error the current top-level rule is skipped up to its closing ';' or '}'
+ * and parsing continues with the next one, so every broken top-level rule is reported once.
+ * Every node but the literals gets the span of its tokens, as with the Antlr engine.
+ * An instance parses one input at a time.
+ */
+public class RecursiveDescentParser implements StylesheetParser {
+
+    private ICSSScanner scanner;
+    private ANTLRErrorListener errorListener;
+
+    //Brace depth inside the current top-level rule, used to skip it after an error
+    private int depth;
+    //The end of the last token consumed, where the node being parsed ends
+    private int lastEnd;
+
+    @Override
+    public AST parse(String input, ANTLRErrorListener errorListener) {
+        this.errorListener = errorListener;
+        this.scanner = new ICSSScanner(input, errorListener);
+        try {
+            return stylesheet();
+        } finally {
+            this.scanner = null;
+            this.errorListener = null;
+        }
+    }
+
+    //stylesheet: (variableAssignment | stylerule)* EOF
+    private AST stylesheet() {
+        AST ast = new AST();
+        while (scanner.getType() != Token.EOF) {
+            depth = 0;
+            try {
+                if (scanner.getType() == ICSSLexer.CAPITAL_IDENT) {
+                    ast.root.addChild(variableAssignment());
+                } else {
+                    ast.root.addChild(stylerule());
+                }
+            } catch (SyntaxError e) {
+                errorListener.syntaxError(null, null, e.line, e.column, e.getMessage(), null);
+                skipTopLevelRule();
+            }
+        }
+        return ast;
+    }
+
+    //stylerule: selector OPEN_BRACE ruleBody CLOSE_BRACE
+    private Stylerule stylerule() {
+        int start = scanner.getStart();
+        Stylerule stylerule = new Stylerule();
+        stylerule.addChild(selector());
+        match(ICSSLexer.OPEN_BRACE);
+        ruleBody(stylerule);
+        match(ICSSLexer.CLOSE_BRACE);
+        return span(stylerule, start);
+    }
+
+    //selector: ID_IDENT | CLASS_IDENT | LOWER_IDENT
+    private Selector selector() {
+        Selector selector;
+        switch (scanner.getType()) {
+            case ICSSLexer.ID_IDENT:
+                selector = new IdSelector(scanner.getName());
+                break;
+            case ICSSLexer.CLASS_IDENT:
+                selector = new ClassSelector(scanner.getName());
+                break;
+            case ICSSLexer.LOWER_IDENT:
+                selector = new TagSelector(scanner.getName());
+                break;
+            default:
+                throw mismatch("{ID_IDENT, CLASS_IDENT, LOWER_IDENT}");
+        }
+        int start = scanner.getStart();
+        consume();
+        return span(selector, start);
+    }
+
+    //ruleBody: (declaration | ifClause | variableAssignment)*
+    private void ruleBody(ASTNode parent) {
+        while (true) {
+            switch (scanner.getType()) {
+                case ICSSLexer.LOWER_IDENT:
+                    parent.addChild(declaration());
+                    break;
+                case ICSSLexer.IF:
+                    parent.addChild(ifClause());
+                    break;
+                case ICSSLexer.CAPITAL_IDENT:
+                    parent.addChild(variableAssignment());
+                    break;
+                default:
+                    return;
+            }
+        }
+    }
+
+    //declaration: LOWER_IDENT COLON expression SEMICOLON
+    private Declaration declaration() {
+        int start = scanner.getStart();
+        Declaration declaration = new Declaration(scanner.getName());
+        consume();
+        span(declaration.property, start);
+        match(ICSSLexer.COLON);
+        declaration.expression = expression();
+        match(ICSSLexer.SEMICOLON);
+        return span(declaration, start);
+    }
+
+    //variableAssignment: CAPITAL_IDENT ASSIGNMENT_OPERATOR expression SEMICOLON
+    private VariableAssignment variableAssignment() {
+        int start = scanner.getStart();
+        VariableAssignment assignment = new VariableAssignment();
+        assignment.name = new VariableReference(scanner.getName());
+        consume();
+        span(assignment.name, start);
+        match(ICSSLexer.ASSIGNMENT_OPERATOR);
+        assignment.expression = expression();
+        match(ICSSLexer.SEMICOLON);
+        return span(assignment, start);
+    }
+
+    //ifClause: IF BOX_BRACKET_OPEN expression BOX_BRACKET_CLOSE OPEN_BRACE ruleBody CLOSE_BRACE elseClause?
+    private IfClause ifClause() {
+        int start = scanner.getStart();
+        IfClause ifClause = new IfClause();
+        consume();
+        match(ICSSLexer.BOX_BRACKET_OPEN);
+        ifClause.conditionalExpression = expression();
+        match(ICSSLexer.BOX_BRACKET_CLOSE);
+        match(ICSSLexer.OPEN_BRACE);
+        ruleBody(ifClause);
+        match(ICSSLexer.CLOSE_BRACE);
+        if (scanner.getType() == ICSSLexer.ELSE) {
+            ifClause.elseClause = elseClause();
+        }
+        return span(ifClause, start);
+    }
+
+    //elseClause: ELSE OPEN_BRACE ruleBody CLOSE_BRACE
+    private ElseClause elseClause() {
+        int start = scanner.getStart();
+        ElseClause elseClause = new ElseClause();
+        consume();
+        match(ICSSLexer.OPEN_BRACE);
+        ruleBody(elseClause);
+        match(ICSSLexer.CLOSE_BRACE);
+        return span(elseClause, start);
+    }
+
+    //expression: term ((PLUS | MIN) term)*, left associative like the Antlr rule
+    private Expression expression() {
+        int start = scanner.getStart();
+        Expression lhs = term();
+        while (scanner.getType() == ICSSLexer.PLUS || scanner.getType() == ICSSLexer.MIN) {
+            Operation operation = scanner.getType() == ICSSLexer.PLUS ? new AddOperation() : new SubtractOperation();
+            consume();
+            operation.lhs = lhs;
+            operation.rhs = term();
+            lhs = span(operation, start);
+        }
+        return lhs;
+    }
+
+    //term: value (MUL value)*, * binds stronger than + and -
+    private Expression term() {
+        int start = scanner.getStart();
+        Expression lhs = value();
+        while (scanner.getType() == ICSSLexer.MUL) {
+            Operation operation = new MultiplyOperation();
+            consume();
+            operation.lhs = lhs;
+            operation.rhs = value();
+            lhs = span(operation, start);
+        }
+        return lhs;
+    }
+
+    //value: COLOR | PIXELSIZE | PERCENTAGE | TRUE | FALSE | SCALAR | CAPITAL_IDENT
+    private Expression value() {
+        Expression value;
+        switch (scanner.getType()) {
+            case ICSSLexer.COLOR:
+                value = ColorLiteral.valueOf(scanner.getName());
+                break;
+            case ICSSLexer.PIXELSIZE:
+                value = PixelLiteral.valueOf(number());
+                break;
+            case ICSSLexer.PERCENTAGE:
+                value = PercentageLiteral.valueOf(number());
+                break;
+            case ICSSLexer.SCALAR:
+                value = ScalarLiteral.valueOf(number());
+                break;
+            case ICSSLexer.TRUE:
+                value = BoolLiteral.valueOf(true);
+                break;
+            case ICSSLexer.FALSE:
+                value = BoolLiteral.valueOf(false);
+                break;
+            case ICSSLexer.CAPITAL_IDENT:
+                value = new VariableReference(scanner.getName());
+                value.setSpan(scanner.getStart(), scanner.getEnd() - scanner.getStart());
+                break;
+            default:
+                throw mismatch("{TRUE, FALSE, PIXELSIZE, PERCENTAGE, SCALAR, COLOR, CAPITAL_IDENT}");
+        }
+        consume();
+        return value;
+    }
+
+    private int number() {
+        int number = scanner.getNumber();
+        if (number < 0) {
+            throw new SyntaxError("number out of range '" + scanner.getText() + "'", scanner.getLine(), scanner.getColumn());
+        }
+        return number;
+    }
+
+    private void match(int type) {
+        if (scanner.getType() != type) {
+            throw mismatch(ICSSLexer.VOCABULARY.getDisplayName(type));
+        }
+        consume();
+    }
+
+    private void consume() {
+        if (scanner.getType() == ICSSLexer.OPEN_BRACE) {
+            depth++;
+        } else if (scanner.getType() == ICSSLexer.CLOSE_BRACE) {
+            depth--;
+        }
+        lastEnd = scanner.getEnd();
+        scanner.next();
+    }
+
+    //From start up to the end of the last token consumed
+    private <T extends ASTNode> T span(T node, int start) {
+        node.setSpan(start, lastEnd - start);
+        return node;
+    }
+
+    //Skip to just after the ';' or '}' that ends the broken top-level rule
+    private void skipTopLevelRule() {
+        while (scanner.getType() != Token.EOF) {
+            int type = scanner.getType();
+            consume();
+            if (depth <= 0 && (type == ICSSLexer.SEMICOLON || type == ICSSLexer.CLOSE_BRACE)) {
+                return;
+            }
+        }
+    }
+
+    private SyntaxError mismatch(String expected) {
+        return new SyntaxError("mismatched input '" + scanner.getText() + "' expecting " + expected,
+                scanner.getLine(), scanner.getColumn());
+    }
+
+    //Unwinds the rule methods up to the stylesheet, where the error is reported
+    private static class SyntaxError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private final int line;
+        private final int column;
+
+        SyntaxError(String message, int line, int column) {
+            super(message, null, false, false);
+            this.line = line;
+            this.column = column;
+        }
+    }
+}
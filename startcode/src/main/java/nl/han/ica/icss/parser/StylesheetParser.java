@@ -0,0 +1,20 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.AST;
+import org.antlr.v4.runtime.ANTLRErrorListener;
+
+/**
+ * A parser engine that turns ICSS source text into an AST.
+ * Syntax errors are reported to the error listener through syntaxError, the same way
+ * the Antlr lexer and parser report them, so the Pipeline can collect them from any engine.
+ */
+public interface StylesheetParser {
+
+    /**
+     * Parses a whole stylesheet.
+     * @param input the ICSS source
+     * @param errorListener receives every syntax error
+     * @return the AST, only complete if no errors were reported
+     */
+    AST parse(String input, ANTLRErrorListener errorListener);
+}
@@ -0,0 +1,95 @@
+package nl.han.ica.icss.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits ICSS source text into chunks that each hold whole top-level rules
+ * (variableAssignments and stylerules), so the chunks can be lexed and parsed on their own.
+ *
+ * ICSS has no strings or comments, so a top-level rule simply ends at a ';' or '}'
+ * where the braces are balanced again. Nothing else is looked at.
+ */
+public class StylesheetSplitter {
+
+    /**
+     * A piece of the input, with the line and column it starts at so the lexer
+     * can report positions relative to the whole input.
+     */
+    public static class Chunk {
+        public final int start;
+        public final int end;
+        public final int line;
+        public final int column;
+
+        public Chunk(int start, int end, int line, int column) {
+            this.start = start;
+            this.end = end;
+            this.line = line;
+            this.column = column;
+        }
+    }
+
+    /**
+     * Splits the input at top-level rule boundaries.
+     * @param input the ICSS source
+     * @param chunkSize a chunk is closed at the first boundary after it has grown this many characters
+     * @return chunks in source order, together covering the whole input
+     */
+    public static List<Chunk> split(CharSequence input, int chunkSize) {
+        List<Chunk> chunks = new ArrayList<>();
+        int depth = 0;
+        int line = 1;
+        int lineStart = 0;
+        int chunkStart = 0;
+        int chunkLine = 1;
+        int chunkColumn = 0;
+
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '\n') {
+                line++;
+                lineStart = i + 1;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                //Too many closing braces is a syntax error, leave that to the parser
+                depth = Math.max(depth - 1, 0);
+            }
+
+            boolean boundary = depth == 0 && (c == '}' || c == ';');
+            if (boundary && i + 1 - chunkStart >= chunkSize) {
+                chunks.add(new Chunk(chunkStart, i + 1, chunkLine, chunkColumn));
+                chunkStart = i + 1;
+                chunkLine = line;
+                chunkColumn = chunkStart - lineStart;
+            }
+        }
+        if (chunkStart < input.length() || chunks.isEmpty()) {
+            chunks.add(new Chunk(chunkStart, input.length(), chunkLine, chunkColumn));
+        }
+        return chunks;
+    }
+
+    /**
+     * Finds the end of the top-level rule that starts at the given position.
+     * @param input the ICSS source
+     * @param from a top-level rule boundary (or the start of the input)
+     * @return the index just after the ';' or '}' that ends the rule, or the input length if it does not end
+     */
+    public static int nextBoundary(CharSequence input, int from) {
+        int depth = 0;
+        for (int i = from; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth = Math.max(depth - 1, 0);
+            }
+            if (depth == 0 && (c == '}' || c == ';')) {
+                return i + 1;
+            }
+        }
+        return input.length();
+    }
+}
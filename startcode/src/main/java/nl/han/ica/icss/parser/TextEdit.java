@@ -0,0 +1,28 @@
+package nl.han.ica.icss.parser;
+
+/**
+ * A change to a text: removedLength characters at offset are replaced by insertedText.
+ */
+public class TextEdit {
+    public final int offset;
+    public final int removedLength;
+    public final String insertedText;
+
+    public TextEdit(int offset, int removedLength, String insertedText) {
+        this.offset = offset;
+        this.removedLength = removedLength;
+        this.insertedText = insertedText;
+    }
+
+    /**
+     * @param text the text before the edit
+     * @return the text after the edit
+     */
+    public String applyTo(String text) {
+        if (offset < 0 || removedLength < 0 || offset + removedLength > text.length()) {
+            throw new IndexOutOfBoundsException("Edit at " + offset + " removing " + removedLength
+                    + " characters, text length " + text.length());
+        }
+        return text.substring(0, offset) + insertedText + text.substring(offset + removedLength);
+    }
+}
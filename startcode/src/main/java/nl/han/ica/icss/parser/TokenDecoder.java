@@ -0,0 +1,91 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+
+/**
+ * Extracts values from Antlr tokens without asking them for their text: numbers are decoded
+ * from the token's character range in the CharStream, names are read into a reusable buffer and
+ * interned in a NameTable. Asking a token for its text creates a new String every time.
+ *
+ * An unbuffered stream forgets characters once they are consumed, its tokens carry a copy of
+ * their text instead, so for those the copy is used.
+ */
+public class TokenDecoder {
+
+    private final NameTable names = new NameTable();
+    private char[] buffer = new char[32];
+
+    /**
+     * @param token a PIXELSIZE, PERCENTAGE or SCALAR token
+     * @return the value of the leading digits, or -1 if it does not fit in an int
+     */
+    public int number(Token token) {
+        CharStream input = token.getInputStream();
+        if (input == null || input instanceof UnbufferedCharStream) {
+            String text = token.getText();
+            int value = 0;
+            for (int i = 0; i < text.length() && isDigit(text.charAt(i)); i++) {
+                value = append(value, text.charAt(i) - '0');
+            }
+            return value;
+        }
+        int index = input.index();
+        input.seek(token.getStartIndex());
+        try {
+            int value = 0;
+            for (int i = 1; i <= token.getStopIndex() - token.getStartIndex() + 1 && isDigit(input.LA(i)); i++) {
+                value = append(value, input.LA(i) - '0');
+            }
+            return value;
+        } finally {
+            input.seek(index);
+        }
+    }
+
+    /**
+     * @param token an identifier or COLOR token
+     * @return the interned text of the token
+     */
+    public String name(Token token) {
+        CharStream input = token.getInputStream();
+        if (input == null || input instanceof UnbufferedCharStream) {
+            String text = token.getText();
+            int length = text.length();
+            text.getChars(0, length, buffer(length), 0);
+            return names.intern(buffer, 0, length);
+        }
+        int length = token.getStopIndex() - token.getStartIndex() + 1;
+        char[] chars = buffer(length);
+        int index = input.index();
+        input.seek(token.getStartIndex());
+        try {
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) input.LA(i + 1);
+            }
+        } finally {
+            input.seek(index);
+        }
+        return names.intern(chars, 0, length);
+    }
+
+    private char[] buffer(int length) {
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        return buffer;
+    }
+
+    //Like ICSSScanner.getNumber: once the value is out of range it stays -1
+    private static int append(int value, int digit) {
+        if (value < 0 || value > (Integer.MAX_VALUE - digit) / 10) {
+            return -1;
+        }
+        return value * 10 + digit;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+}
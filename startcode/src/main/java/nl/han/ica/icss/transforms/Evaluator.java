@@ -1,159 +1,229 @@
 package nl.han.ica.icss.transforms;
 
-import nl.han.ica.datastructures.HANLinkedList;
-import nl.han.ica.datastructures.IHANLinkedList;
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.*;
 import nl.han.ica.icss.ast.operations.*;
-import java.util.HashMap;
+import nl.han.ica.icss.checker.Frames;
+import nl.han.ica.icss.checker.VariableResolver;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class Evaluator implements Transform {
 
-    // Stack of scopes, each scope maps variable names to their literal value
-    private IHANLinkedList<HashMap<String, Literal>> variableScopes = new HANLinkedList<>();
+    private final VariableResolver resolver = new VariableResolver(VariableResolver.Scoping.EVALUATE);
+    // The literal values of the variables in the open scopes, at the depths and slots of the bindings
+    private final Frames<Literal> variableScopes = new Frames<>();
+    // The bindings of the tree or top-level node being evaluated, see VariableResolver, read at cursor
+    private int[] bindings;
+    private int cursor;
+    // True while evaluate builds a new tree, false while apply changes the one it gets
+    private boolean copying;
 
     @Override
     public void apply(AST ast) {
-        variableScopes.addFirst(new HashMap<>()); // put global scope on top
+        checkNotShared(ast);
+        copying = false;
+        startGlobalScope();
+        startBindings(ast.root);
         evaluateStylesheet(ast.root);
     }
 
+    // Same as apply, one top-level rule at a time; the evaluated rules go into a new FlatAST
+    public FlatAST apply(FlatTree ast) {
+        copying = false;
+        startGlobalScope();
+        FlatAST result = new FlatAST();
+        for (int node = ast.getFirstChild(FlatTree.ROOT); node != FlatTree.NONE; node = ast.getNextSibling(node)) {
+            ASTNode view = ast.view(node);
+            startBindings(view);
+            if (view.getKind() == NodeKind.VARIABLE_ASSIGNMENT) {
+                evaluateVariableAssignment((VariableAssignment) view);
+            } else if (view.getKind() == NodeKind.STYLERULE) {
+                evaluateStylerule((Stylerule) view);
+            }
+            result.appendTopLevel(view);
+        }
+        return result;
+    }
+
+    /*
+     Same as apply, but the AST is left as it is: the result is a new AST with only the evaluated stylerules.
+     It shares the nodes evaluating does not change, like selectors, property names, literals and declarations
+     whose value already was a literal. The variables are resolved and kept in this Evaluator,
+     so the AST is only read and separate Evaluators can evaluate one AST on several threads at once. A shared
+     AST is refused like in apply.
+     */
+    public AST evaluate(AST ast) {
+        checkNotShared(ast);
+        copying = true;
+        startGlobalScope();
+        startBindings(ast.root);
+        Stylesheet result = new Stylesheet();
+        for (ASTNode node : ast.root.body) {
+            if (node.getKind() == NodeKind.VARIABLE_ASSIGNMENT) {
+                evaluateVariableAssignment((VariableAssignment) node);
+            } else if (node.getKind() == NodeKind.STYLERULE) {
+                result.addChild(evaluateStylerule((Stylerule) node));
+            }
+        }
+        return new AST(result);
+    }
+
+    // Nothing left over from a previous stylesheet, and the global scope on top
+    private void startGlobalScope() {
+        resolver.reset();
+        variableScopes.clear();
+        variableScopes.open();
+    }
+
+    // Resolves a tree, or the next top-level node, to evaluate it
+    private void startBindings(ASTNode node) {
+        bindings = resolver.resolve(node);
+        cursor = 0;
+    }
+
+    // Nodes of a NodeTable may be part of other trees too, they are not evaluated in place or copied from
+    private static void checkNotShared(AST ast) {
+        if (ast.root.isShared()) {
+            throw new UnsupportedOperationException("A shared AST cannot be evaluated, evaluate the tree it was interned from");
+        }
+    }
+
     // Go through the whole stylesheet and handle vars + rules
     private void evaluateStylesheet(Stylesheet stylesheet) {
         for (ASTNode node : stylesheet.getChildren()) {
-            if (node instanceof VariableAssignment) {
+            if (node.getKind() == NodeKind.VARIABLE_ASSIGNMENT) {
                 evaluateVariableAssignment((VariableAssignment) node);
-            } else if (node instanceof Stylerule) {
+            } else if (node.getKind() == NodeKind.STYLERULE) {
                 evaluateStylerule((Stylerule) node);
             }
         }
     }
 
-    // Evaluate a variable, replace its expr with the literal, and store in scope
+    // Evaluate a variable, replace its expr with the literal (unless copying), and store it in the scope it was bound to:
+    // the innermost one that has it, else the current scope
     private void evaluateVariableAssignment(VariableAssignment varAssign) {
         Literal value = evaluateExpression(varAssign.expression);
         if (value == null) throw new RuntimeException("Cannot evaluate variable: " + varAssign.name.name);
-        varAssign.expression = value;
-
-        // if var exists in any scope, update there, else put in current scope
-        for (int i = 0; i < variableScopes.getSize(); i++) {
-            if (variableScopes.get(i).containsKey(varAssign.name.name)) {
-                variableScopes.get(i).put(varAssign.name.name, value);
-                return;
-            }
+        if (!copying) {
+            varAssign.checkNotShared();
+            varAssign.expression = value;
         }
-        variableScopes.getFirst().put(varAssign.name.name, value);
+        variableScopes.store(bindings[cursor], bindings[cursor + 1], value);
+        cursor += 2;
     }
 
     // Handle rules, also check declarations, vars, and if/else inside
-    private void evaluateStylerule(Stylerule rule) {
-        variableScopes.addFirst(new HashMap<>()); // new scope for this rule
-        HANLinkedList<ASTNode> newChildren = new HANLinkedList<>();
-        int index = 0;
-
-        for (ASTNode child : rule.getChildren()) {
-            if (child instanceof Declaration) {
-                Declaration decl = (Declaration) child;
-                decl.expression = evaluateExpression(decl.expression); // evaluate expr
-                newChildren.insert(index++, decl);
-            } else if (child instanceof VariableAssignment) {
-                evaluateVariableAssignment((VariableAssignment) child);
-            } else if (child instanceof IfClause) {
-                index = evaluateIfClause((IfClause) child, newChildren, index); // handle if/else
+    private Stylerule evaluateStylerule(Stylerule rule) {
+        variableScopes.open(); // new scope for this rule
+        ArrayList<ASTNode> newBody = new ArrayList<>(rule.body.size());
+        flattenBody(rule.body, newBody);
+        variableScopes.close();
+
+        if (copying) {
+            Stylerule copy = new Stylerule();
+            copy.selectors = new ArrayList<>(rule.selectors);
+            copy.body = newBody;
+            return copy;
+        }
+        rule.checkNotShared();
+        rule.body = newBody; // replace old body with the evaluated declarations
+        return rule;
+    }
+
+    // Evaluate the nodes of a body in order, adding the declarations to target; an if/else adds those of the branch taken
+    private void flattenBody(List<ASTNode> body, ArrayList<ASTNode> target) {
+        for (ASTNode node : body) {
+            switch (node.getKind()) {
+                case DECLARATION:
+                    target.add(evaluateDeclaration((Declaration) node));
+                    break;
+                case VARIABLE_ASSIGNMENT:
+                    evaluateVariableAssignment((VariableAssignment) node);
+                    break;
+                case IF_CLAUSE:
+                    evaluateIfClause((IfClause) node, target); // handle if/else
+                    break;
+                default:
+                    break;
             }
         }
+    }
 
-        // replace old children with new evaluated ones
-        rule.getChildren().clear();
-        for (int i = 0; i < newChildren.getSize(); i++) {
-            rule.getChildren().add(newChildren.get(i));
+    // The declaration with its expr evaluated; when copying a new one, unless its expr already was a literal
+    private Declaration evaluateDeclaration(Declaration decl) {
+        Literal value = evaluateExpression(decl.expression);
+        if (!copying) {
+            decl.checkNotShared();
+            decl.expression = value;
+            return decl;
         }
-        variableScopes.removeFirst();
+        if (value == decl.expression) {
+            return decl;
+        }
+        Declaration copy = new Declaration();
+        copy.property = decl.property;
+        copy.expression = value;
+        return copy;
     }
 
     // Evaluate if/else blocks, replace with body of whichever branch is taken
-    private int evaluateIfClause(IfClause ifClause, HANLinkedList<ASTNode> target, int index) {
+    private void evaluateIfClause(IfClause ifClause, ArrayList<ASTNode> target) {
+        int elseStart = bindings[cursor];
+        int end = bindings[cursor + 1];
+        cursor += 2;
         Literal cond = evaluateExpression(ifClause.conditionalExpression);
-        if (!(cond instanceof BoolLiteral)) throw new RuntimeException("If condition must be boolean");
+        if (cond == null || cond.getKind() != NodeKind.BOOL_LITERAL) throw new RuntimeException("If condition must be boolean");
 
-        variableScopes.addFirst(new HashMap<>()); // scope inside if/else
+        variableScopes.open(); // scope inside if/else
 
         if (((BoolLiteral) cond).value) {
-            for (ASTNode node : ifClause.body) index = processIfNode(node, target, index);
+            flattenBody(ifClause.body, target);
         } else if (ifClause.elseClause != null) {
-            for (ASTNode node : ifClause.elseClause.body) index = processIfNode(node, target, index);
+            cursor = elseStart;
+            flattenBody(ifClause.elseClause.body, target);
         }
 
-        variableScopes.removeFirst();
-        return index;
-    }
-
-    // handle individual nodes inside if/else bodies
-    private int processIfNode(ASTNode node, HANLinkedList<ASTNode> target, int index) {
-        if (node instanceof Declaration) ((Declaration) node).expression = evaluateExpression(((Declaration) node).expression);
-        if (node instanceof VariableAssignment) evaluateVariableAssignment((VariableAssignment) node);
-        target.insert(index++, node);
-        return index;
+        variableScopes.close();
+        cursor = end; // past the branch not taken
     }
 
     // recursively evaluate expressions, return Literal
     private Literal evaluateExpression(Expression expr) {
-        if (expr instanceof Literal) return (Literal) expr; // already literal
-        if (expr instanceof VariableReference) return resolveVariable(((VariableReference) expr).name);
-        if (expr instanceof AddOperation || expr instanceof SubtractOperation || expr instanceof MultiplyOperation)
-            return evaluateOperation((Operation) expr);
-        return null;
-    }
-
-    // look up variable in all scopes
-    private Literal resolveVariable(String name) {
-        for (int i = 0; i < variableScopes.getSize(); i++) {
-            HashMap<String, Literal> scope = variableScopes.get(i);
-            if (scope.containsKey(name)) return scope.get(name);
+        if (expr == null) return null;
+        switch (expr.getKind()) {
+            case VARIABLE_REFERENCE: return resolveVariable((VariableReference) expr);
+            case ADD_OPERATION:
+            case SUBTRACT_OPERATION:
+            case MULTIPLY_OPERATION: return PackedValues.toLiteral(evaluateValue(expr)); // the only literal made for an operation
+            default: return (Literal) expr; // already literal
         }
-        throw new RuntimeException("Variable not defined: " + name);
-    }
-
-    // Evaluate +, -, *
-    private Literal evaluateOperation(Operation op) {
-        Literal left = evaluateExpression(op.lhs);
-        Literal right = evaluateExpression(op.rhs);
-
-        if (op instanceof AddOperation) return add(left, right);
-        if (op instanceof SubtractOperation) return subtract(left, right);
-        if (op instanceof MultiplyOperation) return multiply(left, right);
-
-        return null;
-    }
-
-    private Literal add(Literal lhs, Literal rhs) {
-        if (lhs.getClass() != rhs.getClass()) return null;
-        if (lhs instanceof PixelLiteral) return new PixelLiteral(((PixelLiteral) lhs).value + ((PixelLiteral) rhs).value);
-        if (lhs instanceof PercentageLiteral) return new PercentageLiteral(((PercentageLiteral) lhs).value + ((PercentageLiteral) rhs).value);
-        if (lhs instanceof ScalarLiteral) return new ScalarLiteral(((ScalarLiteral) lhs).value + ((ScalarLiteral) rhs).value);
-        return null;
     }
 
-    private Literal subtract(Literal lhs, Literal rhs) {
-        if (lhs.getClass() != rhs.getClass()) return null;
-        if (lhs instanceof PixelLiteral) return new PixelLiteral(((PixelLiteral) lhs).value - ((PixelLiteral) rhs).value);
-        if (lhs instanceof PercentageLiteral) return new PercentageLiteral(((PercentageLiteral) lhs).value - ((PercentageLiteral) rhs).value);
-        if (lhs instanceof ScalarLiteral) return new ScalarLiteral(((ScalarLiteral) lhs).value - ((ScalarLiteral) rhs).value);
-        return null;
+    // read the variable from the scope and slot the reference was bound to
+    private Literal resolveVariable(VariableReference reference) {
+        int depth = bindings[cursor];
+        int slot = bindings[cursor + 1];
+        cursor += 2;
+        if (depth == VariableResolver.UNDEFINED) throw new RuntimeException("Variable not defined: " + reference.name);
+        return variableScopes.load(depth, slot);
     }
 
-    private Literal multiply(Literal lhs, Literal rhs) {
-        // Only allow scalar * other literal
-        if (lhs instanceof ScalarLiteral && rhs instanceof PixelLiteral)
-            return new PixelLiteral((int) (((ScalarLiteral) lhs).value * ((PixelLiteral) rhs).value));
-        if (rhs instanceof ScalarLiteral && lhs instanceof PixelLiteral)
-            return new PixelLiteral((int) (((ScalarLiteral) rhs).value * ((PixelLiteral) lhs).value));
-        if (lhs instanceof ScalarLiteral && rhs instanceof PercentageLiteral)
-            return new PercentageLiteral(((ScalarLiteral) lhs).value * ((PercentageLiteral) rhs).value);
-        if (rhs instanceof ScalarLiteral && lhs instanceof PercentageLiteral)
-            return new PercentageLiteral(((ScalarLiteral) rhs).value * ((PercentageLiteral) lhs).value);
-        if (lhs instanceof ScalarLiteral && rhs instanceof ScalarLiteral)
-            return new ScalarLiteral(((ScalarLiteral) lhs).value * ((ScalarLiteral) rhs).value);
-        return null;
+    // Evaluate +, -, * on packed values, see PackedValues
+    private long evaluateValue(Expression expr) {
+        switch (expr.getKind()) {
+            case VARIABLE_REFERENCE: return PackedValues.of(resolveVariable((VariableReference) expr));
+            case ADD_OPERATION:
+            case SUBTRACT_OPERATION:
+            case MULTIPLY_OPERATION:
+                Operation op = (Operation) expr;
+                // both sides are read, so the bindings of the references in them are too
+                long lhs = op.lhs == null ? PackedValues.NO_VALUE : evaluateValue(op.lhs);
+                long rhs = op.rhs == null ? PackedValues.NO_VALUE : evaluateValue(op.rhs);
+                return PackedValues.apply(op.getKind(), lhs, rhs);
+            default:
+                return PackedValues.of((Literal) expr);
+        }
     }
 }
@@ -0,0 +1,77 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.NodeKind;
+import nl.han.ica.icss.ast.literals.PercentageLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+
+/*
+ Operations are evaluated on values packed in a long instead of on literals, so the intermediate
+ results of a long calculation allocate nothing. The upper half holds the unit, the ordinal of the
+ kind of literal, and the lower half the int value. Colors and booleans cannot be calculated with,
+ they give NO_VALUE, as does a calculation with the wrong units.
+ */
+final class PackedValues {
+
+    static final long NO_VALUE = -1L;
+    private static final NodeKind[] UNITS = NodeKind.values();
+
+    private PackedValues() {
+    }
+
+    static long pack(NodeKind unit, int value) {
+        return (long) unit.ordinal() << 32 | (value & 0xffffffffL);
+    }
+    static NodeKind unitOf(long value) {
+        return UNITS[(int) (value >>> 32)];
+    }
+    static int numberOf(long value) {
+        return (int) value;
+    }
+
+    static long of(Literal literal) {
+        if (literal == null) return NO_VALUE;
+        switch (literal.getKind()) {
+            case PIXEL_LITERAL: return pack(NodeKind.PIXEL_LITERAL, ((PixelLiteral) literal).value);
+            case PERCENTAGE_LITERAL: return pack(NodeKind.PERCENTAGE_LITERAL, ((PercentageLiteral) literal).value);
+            case SCALAR_LITERAL: return pack(NodeKind.SCALAR_LITERAL, ((ScalarLiteral) literal).value);
+            default: return NO_VALUE;
+        }
+    }
+
+    static Literal toLiteral(long value) {
+        if (value == NO_VALUE) return null;
+        switch (unitOf(value)) {
+            case PIXEL_LITERAL: return PixelLiteral.valueOf(numberOf(value));
+            case PERCENTAGE_LITERAL: return PercentageLiteral.valueOf(numberOf(value));
+            default: return ScalarLiteral.valueOf(numberOf(value));
+        }
+    }
+
+    // Evaluate +, - or * on two packed values
+    static long apply(NodeKind operation, long left, long right) {
+        if (left == NO_VALUE || right == NO_VALUE) return NO_VALUE;
+        switch (operation) {
+            case ADD_OPERATION:
+                if (unitOf(left) != unitOf(right)) return NO_VALUE;
+                return pack(unitOf(left), numberOf(left) + numberOf(right));
+            case SUBTRACT_OPERATION:
+                if (unitOf(left) != unitOf(right)) return NO_VALUE;
+                return pack(unitOf(left), numberOf(left) - numberOf(right));
+            default:
+                return multiply(left, right);
+        }
+    }
+
+    private static long multiply(long lhs, long rhs) {
+        // Only allow scalar * other value
+        if (unitOf(lhs) != NodeKind.SCALAR_LITERAL) {
+            if (unitOf(rhs) != NodeKind.SCALAR_LITERAL) return NO_VALUE;
+            long swap = lhs;
+            lhs = rhs;
+            rhs = swap;
+        }
+        return pack(unitOf(rhs), numberOf(lhs) * numberOf(rhs));
+    }
+}
@@ -0,0 +1,405 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.Frames;
+import nl.han.ica.icss.checker.VariableResolver;
+import nl.han.ica.icss.generator.Generator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ A stylesheet compiled once and rendered to CSS many times, each time with other values for its global
+ variables. Rendering gives the same CSS as the Evaluator and Generator would for the stylesheet with
+ those values assigned instead, without parsing, checking or changing a tree.
+
+ The compiled form is a tree of small statements and expressions that read and write variables at the
+ depths and slots the VariableResolver binds them to. Expressions without variables are evaluated when compiling, and CSS
+ that does not depend on a variable is kept as ready text. A Template does not change after it is
+ compiled, so it can render on many threads at once.
+ */
+public final class Template {
+
+    // By global variable that can be overridden: its name and type
+    private final HashMap<String, Integer> globals;
+    private final ExpressionType[] globalTypes;
+    private final Statement[] statements;
+    // The length of the CSS when rendered without overrides, to size the output
+    private final int expectedLength;
+
+    private Template(HashMap<String, Integer> globals, ExpressionType[] globalTypes, Statement[] statements) {
+        this.globals = globals;
+        this.globalTypes = globalTypes;
+        this.statements = statements;
+        this.expectedLength = render(new Literal[globalTypes.length], 256).length();
+    }
+
+    /*
+     Checks the stylesheet and compiles it. Throws IllegalArgumentException if the stylesheet has errors,
+     or uses a variable the Evaluator would not find.
+     The AST is checked in place, but not evaluated, and the template does not keep it.
+     */
+    public static Template compile(AST ast) {
+        new Checker().check(ast);
+        if (!ast.getErrors().isEmpty()) {
+            throw new IllegalArgumentException("Cannot compile a stylesheet with errors: " + ast.getErrors());
+        }
+        return new Compiler().compile(ast);
+    }
+
+    public String render() {
+        return render(Map.of());
+    }
+
+    /*
+     The CSS with the global variables in overrides assigned the given values instead of their own.
+     Throws IllegalArgumentException for a name that is not a global variable, or a value of another type.
+     */
+    public String render(Map<String, ? extends Literal> overrides) {
+        Literal[] values = new Literal[globalTypes.length];
+        for (Map.Entry<String, ? extends Literal> override : overrides.entrySet()) {
+            Integer global = globals.get(override.getKey());
+            if (global == null) {
+                throw new IllegalArgumentException("Not a global variable: " + override.getKey());
+            }
+            Literal value = override.getValue();
+            if (value == null || value.getType() != globalTypes[global]) {
+                throw new IllegalArgumentException("Variable " + override.getKey() + " needs a " + globalTypes[global] + " value");
+            }
+            values[global] = value;
+        }
+        return render(values, expectedLength + 64);
+    }
+
+    private String render(Literal[] overrides, int capacity) {
+        Render render = new Render(overrides, capacity);
+        render.variables.open(); // the global scope
+        for (Statement statement : statements) {
+            statement.execute(render);
+        }
+        return render.css.toString();
+    }
+
+    // What one render works with
+    private static final class Render {
+        final Literal[] overrides;
+        final Frames<Literal> variables = new Frames<>();
+        final StringBuilder css;
+
+        Render(Literal[] overrides, int capacity) {
+            this.overrides = overrides;
+            this.css = new StringBuilder(capacity);
+        }
+    }
+
+    private abstract static class Statement {
+        abstract void execute(Render render);
+    }
+
+    // CSS that is the same for every render
+    private static final class Text extends Statement {
+        final String text;
+
+        Text(String text) {
+            this.text = text;
+        }
+
+        @Override
+        void execute(Render render) {
+            render.css.append(text);
+        }
+    }
+
+    // A declaration with a value that depends on variables; prefix is the indent and property
+    private static final class Declare extends Statement {
+        final String prefix;
+        final Value value;
+
+        Declare(String prefix, Value value) {
+            this.prefix = prefix;
+            this.value = value;
+        }
+
+        @Override
+        void execute(Render render) {
+            render.css.append(prefix).append(Generator.literalToString(value.evaluate(render))).append(";\n");
+        }
+    }
+
+    // A variable assignment; a global one can be overridden, the others have global -1
+    private static final class Assign extends Statement {
+        final int depth;
+        final int slot;
+        final Value value;
+        final int global;
+
+        Assign(int depth, int slot, Value value, int global) {
+            this.depth = depth;
+            this.slot = slot;
+            this.value = value;
+            this.global = global;
+        }
+
+        @Override
+        void execute(Render render) {
+            Literal override = global < 0 ? null : render.overrides[global];
+            render.variables.store(depth, slot, override != null ? override : value.evaluate(render));
+        }
+    }
+
+    // The statements of a rule or a branch, in a scope of their own
+    private static final class Scope extends Statement {
+        final Statement[] body;
+
+        Scope(Statement[] body) {
+            this.body = body;
+        }
+
+        @Override
+        void execute(Render render) {
+            render.variables.open();
+            for (Statement statement : body) {
+                statement.execute(render);
+            }
+            render.variables.close();
+        }
+    }
+
+    // An if-clause with a condition that depends on variables; the branches are scopes, or null if empty
+    private static final class Branch extends Statement {
+        final Value condition;
+        final Statement whenTrue;
+        final Statement whenFalse;
+
+        Branch(Value condition, Statement whenTrue, Statement whenFalse) {
+            this.condition = condition;
+            this.whenTrue = whenTrue;
+            this.whenFalse = whenFalse;
+        }
+
+        @Override
+        void execute(Render render) {
+            Statement branch = ((BoolLiteral) condition.evaluate(render)).value ? whenTrue : whenFalse;
+            if (branch != null) {
+                branch.execute(render);
+            }
+        }
+    }
+
+    // An expression. Numbers are calculated packed, see PackedValues, only the result becomes a literal
+    private abstract static class Value {
+        abstract Literal evaluate(Render render);
+
+        long evaluatePacked(Render render) {
+            return PackedValues.of(evaluate(render));
+        }
+    }
+
+    private static final class Constant extends Value {
+        final Literal literal;
+        final long packed;
+
+        Constant(Literal literal) {
+            this.literal = literal;
+            this.packed = PackedValues.of(literal);
+        }
+
+        @Override
+        Literal evaluate(Render render) {
+            return literal;
+        }
+        @Override
+        long evaluatePacked(Render render) {
+            return packed;
+        }
+    }
+
+    private static final class Load extends Value {
+        final int depth;
+        final int slot;
+
+        Load(int depth, int slot) {
+            this.depth = depth;
+            this.slot = slot;
+        }
+
+        @Override
+        Literal evaluate(Render render) {
+            return render.variables.load(depth, slot);
+        }
+    }
+
+    private static final class Calculate extends Value {
+        final NodeKind operation;
+        final Value lhs;
+        final Value rhs;
+
+        Calculate(NodeKind operation, Value lhs, Value rhs) {
+            this.operation = operation;
+            this.lhs = lhs;
+            this.rhs = rhs;
+        }
+
+        @Override
+        Literal evaluate(Render render) {
+            return PackedValues.toLiteral(evaluatePacked(render));
+        }
+        @Override
+        long evaluatePacked(Render render) {
+            return PackedValues.apply(operation, lhs.evaluatePacked(render), rhs.evaluatePacked(render));
+        }
+    }
+
+    // Turns a checked AST into statements, in the order and scopes of the Evaluator
+    private static final class Compiler {
+        private final HashMap<String, Integer> globals = new HashMap<>();
+        private final ArrayList<ExpressionType> globalTypes = new ArrayList<>();
+        // The bindings of the AST, see VariableResolver, read at cursor
+        private int[] bindings;
+        private int cursor;
+
+        Template compile(AST ast) {
+            bindings = new VariableResolver(VariableResolver.Scoping.EVALUATE).resolve(ast.root);
+            ArrayList<Statement> statements = new ArrayList<>();
+            for (ASTNode node : ast.root.body) {
+                if (node.getKind() == NodeKind.VARIABLE_ASSIGNMENT) {
+                    VariableAssignment assignment = (VariableAssignment) node;
+                    Integer global = globals.get(assignment.name.name);
+                    if (global == null) {
+                        global = globals.size();
+                        globals.put(assignment.name.name, global);
+                        globalTypes.add(assignment.expression.getType());
+                    } else if (globalTypes.get(global) != assignment.expression.getType()) {
+                        globalTypes.set(global, ExpressionType.UNDEFINED); // no override fits both
+                    }
+                    statements.add(compileAssign(assignment, global));
+                } else if (node.getKind() == NodeKind.STYLERULE) {
+                    add(statements, compileRule((Stylerule) node));
+                }
+            }
+            return new Template(globals, globalTypes.toArray(new ExpressionType[0]), statements.toArray(new Statement[0]));
+        }
+
+        private Statement compileRule(Stylerule rule) {
+            ArrayList<Statement> body = new ArrayList<>();
+            add(body, new Text(rule.selectors.get(0).toString() + " {\n"));
+            compileBody(rule.body, body);
+            add(body, new Text("}\n\n"));
+            return scope(body);
+        }
+
+        private void compileBody(List<ASTNode> nodes, ArrayList<Statement> target) {
+            for (ASTNode node : nodes) {
+                switch (node.getKind()) {
+                    case DECLARATION: {
+                        Declaration declaration = (Declaration) node;
+                        String prefix = "  " + declaration.property.name + ": ";
+                        Value value = compileValue(declaration.expression);
+                        if (value instanceof Constant) {
+                            add(target, new Text(prefix + Generator.literalToString(((Constant) value).literal) + ";\n"));
+                        } else {
+                            add(target, new Declare(prefix, value));
+                        }
+                        break;
+                    }
+                    case VARIABLE_ASSIGNMENT: {
+                        add(target, compileAssign((VariableAssignment) node, -1));
+                        break;
+                    }
+                    case IF_CLAUSE:
+                        add(target, compileIfClause((IfClause) node));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        private Statement compileAssign(VariableAssignment assignment, int global) {
+            Value value = compileValue(assignment.expression);
+            Assign assign = new Assign(bindings[cursor], bindings[cursor + 1], value, global);
+            cursor += 2;
+            return assign;
+        }
+
+        private Statement compileIfClause(IfClause ifClause) {
+            cursor += 2; // where the else-clause starts and ends, both branches are compiled
+            Value condition = compileValue(ifClause.conditionalExpression);
+            Statement whenTrue = compileBranch(ifClause.body);
+            Statement whenFalse = ifClause.elseClause == null ? null : compileBranch(ifClause.elseClause.body);
+            if (condition instanceof Constant) {
+                return ((BoolLiteral) ((Constant) condition).literal).value ? whenTrue : whenFalse;
+            }
+            return new Branch(condition, whenTrue, whenFalse);
+        }
+
+        private Statement compileBranch(List<ASTNode> nodes) {
+            ArrayList<Statement> body = new ArrayList<>();
+            compileBody(nodes, body);
+            return body.isEmpty() ? null : scope(body);
+        }
+
+        // A scope, or just its text if nothing in it uses variables
+        private static Statement scope(ArrayList<Statement> body) {
+            if (body.size() == 1 && body.get(0) instanceof Text) {
+                return body.get(0);
+            }
+            return new Scope(body.toArray(new Statement[0]));
+        }
+
+        // Appends a statement, joining text with the text before it; null is left out
+        private static void add(ArrayList<Statement> statements, Statement statement) {
+            if (statement == null) return;
+            int last = statements.size() - 1;
+            if (statement instanceof Text && last >= 0 && statements.get(last) instanceof Text) {
+                statements.set(last, new Text(((Text) statements.get(last)).text + ((Text) statement).text));
+            } else {
+                statements.add(statement);
+            }
+        }
+
+        // Expressions without variables become constants
+        private Value compileValue(Expression expression) {
+            switch (expression.getKind()) {
+                case VARIABLE_REFERENCE: {
+                    int depth = bindings[cursor];
+                    int slot = bindings[cursor + 1];
+                    cursor += 2;
+                    if (depth == VariableResolver.UNDEFINED) {
+                        throw new IllegalArgumentException("Variable not defined: " + ((VariableReference) expression).name);
+                    }
+                    return new Load(depth, slot);
+                }
+                case ADD_OPERATION:
+                case SUBTRACT_OPERATION:
+                case MULTIPLY_OPERATION: {
+                    Operation operation = (Operation) expression;
+                    Value lhs = compileValue(operation.lhs);
+                    Value rhs = compileValue(operation.rhs);
+                    if (lhs instanceof Constant && rhs instanceof Constant) {
+                        long value = PackedValues.apply(operation.getKind(), ((Constant) lhs).packed, ((Constant) rhs).packed);
+                        return new Constant(PackedValues.toLiteral(value));
+                    }
+                    return new Calculate(operation.getKind(), lhs, rhs);
+                }
+                default:
+                    return new Constant(copy((Literal) expression));
+            }
+        }
+
+        // The same value in a literal that is not part of the AST
+        private static Literal copy(Literal literal) {
+            switch (literal.getKind()) {
+                case COLOR_LITERAL: return ColorLiteral.valueOf(((ColorLiteral) literal).value);
+                case BOOL_LITERAL: return BoolLiteral.valueOf(((BoolLiteral) literal).value);
+                default: return PackedValues.toLiteral(PackedValues.of(literal));
+            }
+        }
+    }
+}
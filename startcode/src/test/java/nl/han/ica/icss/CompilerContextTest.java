@@ -0,0 +1,63 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.transforms.Evaluator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompilerContextTest {
+
+    String readTestFile(String resource) throws IOException {
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(resource)) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    String compileWithPipeline(String input) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(input);
+        assertTrue(pipeline.check(), pipeline.getErrors().toString());
+        pipeline.transform();
+        return pipeline.generate();
+    }
+
+    @Test
+    void testReusedContextMatchesPipeline() throws IOException {
+        CompilerContext context = new CompilerContext();
+        for (int round = 0; round < 2; round++) {
+            for (String resource : new String[]{"level0.icss", "level1.icss", "level2.icss", "level3.icss"}) {
+                String input = readTestFile(resource);
+                assertEquals(compileWithPipeline(input), context.compile(input), resource);
+                assertTrue(context.getErrors().isEmpty(), context.getErrors().toString());
+            }
+        }
+    }
+
+    @Test
+    void testErrorsDoNotCarryOver() {
+        CompilerContext context = new CompilerContext();
+        assertNull(context.compile("p { width: ; }"));
+        assertEquals(1, context.getErrors().size(), context.getErrors().toString());
+
+        assertNull(context.compile("p { color: Undefined; }"));
+        assertEquals(2, context.getErrors().size(), context.getErrors().toString());
+
+        assertEquals("p {\n  width: 10px;\n}\n\n", context.compile("p { width: 10px; }"));
+        assertTrue(context.getErrors().isEmpty());
+    }
+
+    @Test
+    void testEvaluatorForgetsVariablesOfPreviousStylesheet() {
+        CompilerContext context = new CompilerContext();
+        Evaluator evaluator = new Evaluator();
+        assertTrue(context.parse("W := 10px; p { width: W; }"));
+        evaluator.apply(context.getAST());
+
+        assertTrue(context.parse("p { width: W; }"));
+        assertThrows(RuntimeException.class, () -> evaluator.apply(context.getAST()));
+    }
+}
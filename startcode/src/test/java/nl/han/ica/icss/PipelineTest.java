@@ -0,0 +1,332 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.ASTNode;
+import nl.han.ica.icss.ast.FlatAST;
+import nl.han.ica.icss.ast.SourceSpan;
+import nl.han.ica.icss.parser.Fixtures;
+import nl.han.ica.icss.parser.RecursiveDescentParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineTest {
+
+    InputStream openTestFile(String resource) {
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        return classLoader.getResourceAsStream(resource);
+    }
+
+    //The spans of all nodes, in preorder
+    static List<SourceSpan> spans(ASTNode node) {
+        List<SourceSpan> spans = new ArrayList<>();
+        addSpans(node, spans);
+        return spans;
+    }
+    private static void addSpans(ASTNode node, List<SourceSpan> spans) {
+        spans.add(node.getSpan());
+        for (int i = 0; i < node.childCount(); i++) {
+            addSpans(node.childAt(i), spans);
+        }
+    }
+
+    AST parseTestStream(String resource) throws IOException {
+        Pipeline pipeline = new Pipeline();
+        try (InputStream inputStream = openTestFile(resource)) {
+            pipeline.parseStream(inputStream);
+        }
+        assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+        return pipeline.getAST();
+    }
+
+    AST parseTestString(String resource) throws IOException {
+        Pipeline pipeline = new Pipeline();
+        try (InputStream inputStream = openTestFile(resource)) {
+            pipeline.parseString(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+        return pipeline.getAST();
+    }
+
+    AST parseTestFileMapped(String resource) throws IOException, URISyntaxException {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseMappedFile(Paths.get(this.getClass().getClassLoader().getResource(resource).toURI()));
+        assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+        return pipeline.getAST();
+    }
+
+    @Test
+    void testParseStringLevel2() throws IOException {
+        assertEquals(Fixtures.uncheckedLevel2(), parseTestString("level2.icss"));
+    }
+
+    @Test
+    void testParseStringLevel3() throws IOException {
+        assertEquals(Fixtures.uncheckedLevel3(), parseTestString("level3.icss"));
+    }
+
+    @Test
+    void testGenerateLevel3() throws IOException {
+        Pipeline pipeline = new Pipeline();
+        try (InputStream inputStream = openTestFile("level3.icss")) {
+            pipeline.parseString(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(pipeline.check(), pipeline.getErrors().toString());
+        pipeline.transform();
+        //The if-clause with its nested if/else is replaced by the declarations of the branches taken
+        assertEquals("p {\n  background-color: #ffffff;\n  width: 500px;\n  color: #124532;\n  background-color: #000000;\n"
+                + "  height: 20px;\n}\n\na {\n  color: #ff0000;\n}\n\n#menu {\n  width: 520px;\n}\n\n"
+                + ".menu {\n  color: #000000;\n  background-color: #ff0000;\n}\n\n", pipeline.generate());
+    }
+
+    @Test
+    void testGenerateOperations() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString("W := 10px; p { width: 2 * W + 5px - 3 * 2px; height: 50% * 2; z-index: 3 * 4 - 2; margin: W - 20px; }");
+        assertTrue(pipeline.check(), pipeline.getErrors().toString());
+        pipeline.transform();
+        assertEquals("p {\n  width: 19px;\n  height: 100%;\n  z-index: 10;\n  margin: -10px;\n}\n\n", pipeline.generate());
+    }
+
+    @Test
+    void testParseStringReportsSyntaxErrorOnce() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString("p { width: 10px + ; }");
+        assertFalse(pipeline.isParsed());
+        assertEquals(1, pipeline.getErrors().size(), pipeline.getErrors().toString());
+    }
+
+    @Test
+    void testValidateSyntaxAcceptsValidInput() throws IOException {
+        Pipeline pipeline = new Pipeline();
+        try (InputStream inputStream = openTestFile("level3.icss")) {
+            assertTrue(pipeline.validateSyntax(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8)));
+        }
+        assertTrue(pipeline.getErrors().isEmpty());
+        assertNull(pipeline.getAST());
+    }
+
+    @Test
+    void testValidateSyntaxStopsAtFirstError() {
+        Pipeline pipeline = new Pipeline();
+        assertFalse(pipeline.validateSyntax("p { width: ; }\na { color: #ff0000; }\n#menu { height 10px; }"));
+        assertEquals(1, pipeline.getErrors().size(), pipeline.getErrors().toString());
+        assertTrue(pipeline.getErrors().get(0).contains("';'"), pipeline.getErrors().toString());
+
+        assertFalse(pipeline.validateSyntax("p { width: 10px; } ? a { color: #ff0000; }"));
+        assertEquals(1, pipeline.getErrors().size(), pipeline.getErrors().toString());
+    }
+
+    @Test
+    void testValidateSyntaxAfterParse() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString("p { width: 10px; }");
+        assertTrue(pipeline.check(), pipeline.getErrors().toString());
+        AST ast = pipeline.getAST();
+
+        assertFalse(pipeline.validateSyntax("p { width: ; }"));
+        assertFalse(pipeline.isParsed());
+        assertFalse(pipeline.isChecked());
+        assertEquals(1, pipeline.getErrors().size(), pipeline.getErrors().toString());
+        assertSame(ast, pipeline.getAST());
+    }
+
+    @Test
+    void testRecursiveDescentParserMatchesAntlr() {
+        String input = "W := 10px;\np { width: W + 2 * 5px - 3px * 2; if[TRUE] { color: #ff00ff; } else { height: 50%; } }\n"
+                + "#menu-1 { top: 0px; }\n.iffy { left: 1 * W; }";
+        Pipeline antlr = new Pipeline();
+        antlr.parseString(input);
+        Pipeline recursiveDescent = new Pipeline();
+        recursiveDescent.setStylesheetParser(new RecursiveDescentParser());
+        recursiveDescent.parseString(input);
+
+        assertTrue(recursiveDescent.isParsed(), recursiveDescent.getErrors().toString());
+        assertEquals(antlr.getAST(), recursiveDescent.getAST());
+        assertEquals(antlr.getAST().toString(), recursiveDescent.getAST().toString());
+    }
+
+    @Test
+    void testRecursiveDescentParserReportsErrorPerRule() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.setStylesheetParser(new RecursiveDescentParser());
+        pipeline.parseString("p { width: 10px + ; }\na { color: #ff0000; }\n#menu { height 10px; }");
+        assertFalse(pipeline.isParsed());
+        assertEquals(2, pipeline.getErrors().size(), pipeline.getErrors().toString());
+        assertTrue(pipeline.getErrors().get(0).contains("';'"), pipeline.getErrors().toString());
+    }
+
+    @Test
+    void testNumberOutOfRangeIsSyntaxError() {
+        String input = "p { width: 2147483648px; }\na { height: 2147483647px; }";
+        Pipeline antlr = new Pipeline();
+        antlr.parseString(input);
+        Pipeline recursiveDescent = new Pipeline();
+        recursiveDescent.setStylesheetParser(new RecursiveDescentParser());
+        recursiveDescent.parseString(input);
+        Pipeline stream = new Pipeline();
+        stream.parseStream(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+
+        for (Pipeline pipeline : new Pipeline[]{antlr, recursiveDescent, stream}) {
+            assertFalse(pipeline.isParsed());
+            assertEquals(List.of("Syntax error: number out of range '2147483648px'"), pipeline.getErrors());
+        }
+    }
+
+    @Test
+    void testParseStringParallelMatchesParseString() throws IOException {
+        String input;
+        try (InputStream inputStream = openTestFile("level3.icss")) {
+            input = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8).repeat(50);
+        }
+        Pipeline sequential = new Pipeline();
+        sequential.parseString(input);
+        Pipeline parallel = new Pipeline();
+        parallel.parseStringParallel(input, 100);
+
+        assertTrue(parallel.isParsed(), parallel.getErrors().toString());
+        assertEquals(sequential.getAST(), parallel.getAST());
+        assertEquals(sequential.getAST().root.body.size(), parallel.getAST().root.body.size());
+        assertEquals(spans(sequential.getAST().root), spans(parallel.getAST().root));
+    }
+
+    @Test
+    void testParseStringParallelReportsErrorsInOrder() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseStringParallel("p { width: ; }\na { color: #ff0000; }\n#menu { height 10px; }", 1);
+        assertFalse(pipeline.isParsed());
+        assertEquals(2, pipeline.getErrors().size(), pipeline.getErrors().toString());
+        assertTrue(pipeline.getErrors().get(0).contains("';'"), pipeline.getErrors().toString());
+    }
+
+    @Test
+    void testParseEditsMatchesParseString() throws IOException {
+        String text;
+        try (InputStream inputStream = openTestFile("level3.icss")) {
+            text = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        Pipeline incremental = new Pipeline();
+        incremental.parseIncremental(text);
+
+        //Type snippets at random line starts one key at a time, then remove them again with backspace
+        Random random = new Random(42);
+        int validStates = 0;
+        for (int i = 0; i < 40; i++) {
+            int offset = text.lastIndexOf('\n', random.nextInt(text.length())) + 1;
+            long depth = text.substring(0, offset).chars().filter(c -> c == '{').count()
+                    - text.substring(0, offset).chars().filter(c -> c == '}').count();
+            String snippet = depth > 0 ? "width: 10px + 2px;\n" : (i % 2 == 0 ? "a { color: #00ff00; }\n" : "X := 2;\n");
+
+            for (int key = 0; key < snippet.length(); key++) {
+                text = text.substring(0, offset + key) + snippet.charAt(key) + text.substring(offset + key);
+                incremental.parseEdit(offset + key, 0, String.valueOf(snippet.charAt(key)));
+                validStates += assertSameParse(text, incremental);
+            }
+            if (random.nextBoolean()) {
+                for (int key = snippet.length(); key > 0; key--) {
+                    text = text.substring(0, offset + key - 1) + text.substring(offset + key);
+                    incremental.parseEdit(offset + key - 1, 1, "");
+                    validStates += assertSameParse(text, incremental);
+                }
+            }
+        }
+        assertTrue(validStates > 100, "only " + validStates + " valid states");
+    }
+
+    private int assertSameParse(String text, Pipeline incremental) {
+        Pipeline full = new Pipeline();
+        full.parseString(text);
+        assertEquals(full.isParsed(), incremental.isParsed(), text);
+        if (!full.isParsed()) {
+            return 0;
+        }
+        assertEquals(full.getAST().toString(), incremental.getAST().toString(), text);
+        assertEquals(spans(full.getAST().root), spans(incremental.getAST().root), text);
+        return 1;
+    }
+
+    @Test
+    void testParseEditReusesUntouchedRules() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseIncremental("A := 1px;\np { width: A; }\na { color: #ff0000; }\n");
+        List<ASTNode> before = new ArrayList<>(pipeline.getAST().root.body);
+
+        pipeline.parseEdit("A := 1px;\np { width: A".length(), 0, " + 2px");
+        List<ASTNode> after = pipeline.getAST().root.body;
+        assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+        assertSame(before.get(0), after.get(0));
+        assertNotSame(before.get(1), after.get(1));
+        assertSame(before.get(2), after.get(2));
+    }
+
+    @Test
+    void testNoEditsAfterTransformParsesAgain() {
+        String input = "A := 1px;\np { width: A + 2px; }\n";
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseIncremental(input);
+        assertTrue(pipeline.check(), pipeline.getErrors().toString());
+        pipeline.transform();
+
+        pipeline.parseEdits(List.of());
+        Pipeline full = new Pipeline();
+        full.parseString(input);
+        assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+        assertEquals(full.getAST().toString(), pipeline.getAST().toString());
+    }
+
+    @Test
+    void testParseStreamLevel0() throws IOException {
+        assertEquals(Fixtures.uncheckedLevel0(), parseTestStream("level0.icss"));
+    }
+
+    @Test
+    void testParseStreamLevel1() throws IOException {
+        assertEquals(Fixtures.uncheckedLevel1(), parseTestStream("level1.icss"));
+    }
+
+    @Test
+    void testParseStreamLevel2() throws IOException {
+        assertEquals(Fixtures.uncheckedLevel2(), parseTestStream("level2.icss"));
+    }
+
+    @Test
+    void testParseStreamLevel3() throws IOException {
+        assertEquals(Fixtures.uncheckedLevel3(), parseTestStream("level3.icss"));
+    }
+
+    @Test
+    void testParseMappedFileLevel2() throws IOException, URISyntaxException {
+        assertEquals(Fixtures.uncheckedLevel2(), parseTestFileMapped("level2.icss"));
+    }
+
+    @Test
+    void testParseMappedFileLevel3() throws IOException, URISyntaxException {
+        assertEquals(Fixtures.uncheckedLevel3(), parseTestFileMapped("level3.icss"));
+    }
+
+    @Test
+    void testParseFlatFileLevel3() throws IOException, URISyntaxException {
+        Pipeline pipeline = new Pipeline();
+        FlatAST flat = pipeline.parseFlatFile(Paths.get(this.getClass().getClassLoader().getResource("level3.icss").toURI()));
+        assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+        assertEquals(Fixtures.uncheckedLevel3(), flat.toAST());
+    }
+
+    @Test
+    void testParseStreamReportsSyntaxErrors() {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseStream(new ByteArrayInputStream("p { width: ; } a { color: #ff0000; }".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(pipeline.isParsed());
+        assertFalse(pipeline.getErrors().isEmpty());
+    }
+}
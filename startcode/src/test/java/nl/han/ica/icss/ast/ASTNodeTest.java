@@ -0,0 +1,126 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import nl.han.ica.icss.parser.Fixtures;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ASTNodeTest {
+
+    void assertChildAtMatchesGetChildren(ASTNode node) {
+        List<ASTNode> children = node.getChildren();
+        assertEquals(children.size(), node.childCount(), node.getNodeLabel());
+        for (int i = 0; i < children.size(); i++) {
+            assertSame(children.get(i), node.childAt(i), node.getNodeLabel());
+            if (children.get(i) != null) {
+                assertChildAtMatchesGetChildren(children.get(i));
+            }
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> node.childAt(children.size()), node.getNodeLabel());
+    }
+
+    @Test
+    void testChildAtMatchesGetChildren() {
+        for (AST ast : new AST[]{Fixtures.uncheckedLevel0(), Fixtures.uncheckedLevel1(),
+                Fixtures.uncheckedLevel2(), Fixtures.uncheckedLevel3()}) {
+            assertChildAtMatchesGetChildren(ast.root);
+        }
+    }
+
+    @Test
+    void testChildAtWithMissingChildren() {
+        Declaration declaration = new Declaration();
+        assertChildAtMatchesGetChildren(declaration);
+        declaration.expression = new VariableReference("X");
+        assertChildAtMatchesGetChildren(declaration);
+
+        assertChildAtMatchesGetChildren(new IfClause());
+    }
+
+    @Test
+    void testLiteralValueOf() {
+        assertSame(PixelLiteral.valueOf(10), PixelLiteral.valueOf(10));
+        assertSame(PercentageLiteral.valueOf(100), PercentageLiteral.valueOf(100));
+        assertSame(ScalarLiteral.valueOf(-1), ScalarLiteral.valueOf(-1));
+        assertSame(BoolLiteral.valueOf(true), BoolLiteral.valueOf(true));
+        assertSame(ColorLiteral.valueOf("#ffffff"), ColorLiteral.valueOf("#ffffff"));
+        assertEquals(PixelLiteral.valueOf(100000), PixelLiteral.valueOf(100000));
+        assertEquals(100000, PixelLiteral.valueOf(100000).value);
+
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString("p { width: 10px; height: 10px; color: #ffffff; background-color: #ffffff; }");
+        Stylerule rule = (Stylerule) pipeline.getAST().root.body.get(0);
+        assertSame(((Declaration) rule.body.get(0)).expression, ((Declaration) rule.body.get(1)).expression);
+        assertSame(((Declaration) rule.body.get(2)).expression, ((Declaration) rule.body.get(3)).expression);
+    }
+
+    @Test
+    void testCachedLiteralsAreShared() {
+        for (Literal literal : new Literal[]{PixelLiteral.valueOf(10), PercentageLiteral.valueOf(100),
+                ScalarLiteral.valueOf(-1), BoolLiteral.valueOf(false), ColorLiteral.valueOf("#ffffff")}) {
+            assertTrue(literal.isShared(), literal.getNodeLabel());
+            assertThrows(UnsupportedOperationException.class, () -> new ErrorIndex().record(literal, "error"));
+            assertThrows(UnsupportedOperationException.class, () -> literal.setSpan(0, 4));
+            assertFalse(literal.hasError());
+        }
+        //Not in the cache, so a literal of its own
+        PixelLiteral own = PixelLiteral.valueOf(100000);
+        assertFalse(own.isShared());
+        new ErrorIndex().record(own, "error");
+        assertTrue(own.hasError());
+        assertFalse(new ColorLiteral("#ffffff").isShared());
+    }
+
+    //Answers the kind belonging to the visit method that was called
+    static class KindVisitor implements ASTVisitor<NodeKind> {
+        public NodeKind visitStylesheet(Stylesheet node) { return NodeKind.STYLESHEET; }
+        public NodeKind visitStylerule(Stylerule node) { return NodeKind.STYLERULE; }
+        public NodeKind visitTagSelector(TagSelector node) { return NodeKind.TAG_SELECTOR; }
+        public NodeKind visitClassSelector(ClassSelector node) { return NodeKind.CLASS_SELECTOR; }
+        public NodeKind visitIdSelector(IdSelector node) { return NodeKind.ID_SELECTOR; }
+        public NodeKind visitDeclaration(Declaration node) { return NodeKind.DECLARATION; }
+        public NodeKind visitPropertyName(PropertyName node) { return NodeKind.PROPERTY_NAME; }
+        public NodeKind visitVariableAssignment(VariableAssignment node) { return NodeKind.VARIABLE_ASSIGNMENT; }
+        public NodeKind visitVariableReference(VariableReference node) { return NodeKind.VARIABLE_REFERENCE; }
+        public NodeKind visitIfClause(IfClause node) { return NodeKind.IF_CLAUSE; }
+        public NodeKind visitElseClause(ElseClause node) { return NodeKind.ELSE_CLAUSE; }
+        public NodeKind visitAddOperation(AddOperation node) { return NodeKind.ADD_OPERATION; }
+        public NodeKind visitSubtractOperation(SubtractOperation node) { return NodeKind.SUBTRACT_OPERATION; }
+        public NodeKind visitMultiplyOperation(MultiplyOperation node) { return NodeKind.MULTIPLY_OPERATION; }
+        public NodeKind visitBoolLiteral(BoolLiteral node) { return NodeKind.BOOL_LITERAL; }
+        public NodeKind visitColorLiteral(ColorLiteral node) { return NodeKind.COLOR_LITERAL; }
+        public NodeKind visitPercentageLiteral(PercentageLiteral node) { return NodeKind.PERCENTAGE_LITERAL; }
+        public NodeKind visitPixelLiteral(PixelLiteral node) { return NodeKind.PIXEL_LITERAL; }
+        public NodeKind visitScalarLiteral(ScalarLiteral node) { return NodeKind.SCALAR_LITERAL; }
+    }
+
+    void assertKindMatchesClass(ASTNode node) {
+        //AddOperation -> ADD_OPERATION
+        String expected = node.getClass().getSimpleName().replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
+        assertEquals(expected, node.getKind().name());
+        assertEquals(node.getKind(), node.accept(new KindVisitor()));
+        for (int i = 0; i < node.childCount(); i++) {
+            if (node.childAt(i) != null) {
+                assertKindMatchesClass(node.childAt(i));
+            }
+        }
+    }
+
+    @Test
+    void testKindAndAcceptMatchClass() {
+        for (AST ast : new AST[]{Fixtures.uncheckedLevel0(), Fixtures.uncheckedLevel1(),
+                Fixtures.uncheckedLevel2(), Fixtures.uncheckedLevel3()}) {
+            assertKindMatchesClass(ast.root);
+        }
+    }
+}
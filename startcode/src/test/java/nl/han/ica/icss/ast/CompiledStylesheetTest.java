@@ -0,0 +1,98 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.Fixtures;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledStylesheetTest {
+
+    @TempDir
+    Path directory;
+
+    AST parseTestFile(String resource) throws IOException {
+        Pipeline pipeline = new Pipeline();
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(resource)) {
+            pipeline.parseString(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+        return pipeline.getAST();
+    }
+
+    CompiledStylesheet roundTrip(AST ast) throws IOException {
+        Path file = directory.resolve("stylesheet" + CompiledStylesheet.EXTENSION);
+        CompiledStylesheet.write(ast, file);
+        return CompiledStylesheet.open(file);
+    }
+
+    List<String> describe(List<SemanticError> errors) {
+        return errors.stream().map(SemanticError::toString).collect(Collectors.toList());
+    }
+
+    @Test
+    void testRoundTripMatchesOriginal() throws IOException {
+        for (AST ast : new AST[]{Fixtures.uncheckedLevel0(), Fixtures.uncheckedLevel1(),
+                Fixtures.uncheckedLevel2(), Fixtures.uncheckedLevel3()}) {
+            assertEquals(ast, roundTrip(ast).toAST());
+        }
+    }
+
+    @Test
+    void testRoundTripKeepsCheckerErrors() throws IOException {
+        for (String resource : new String[]{"level3.icss", "ch01_undefined.icss", "ch02_types.icss", "ch03_color_ops.icss",
+                "ch04_prop_type.icss", "ch05_if_condition.icss", "ch06_scope.icss"}) {
+            AST ast = parseTestFile(resource);
+            new Checker().check(ast);
+
+            CompiledStylesheet compiled = roundTrip(ast);
+            assertEquals(ast, compiled.toAST(), resource);
+            assertEquals(describe(ast.getErrors()), describe(compiled.getErrors()), resource);
+            assertEquals(describe(ast.getErrors()), describe(compiled.toAST().getErrors()), resource);
+        }
+    }
+
+    @Test
+    void testGenerateFromEvaluatedStylesheet() throws IOException {
+        AST ast = parseTestFile("level3.icss");
+        new Evaluator().apply(ast);
+
+        assertEquals(new Generator().generate(ast), new Generator().generate(roundTrip(ast)));
+    }
+
+    @Test
+    void testNodesAreReadWithoutDecodingTheRest() throws IOException {
+        CompiledStylesheet compiled = roundTrip(Fixtures.uncheckedLevel0());
+        int rule = compiled.getFirstChild(FlatTree.ROOT);
+        int secondRule = compiled.getNextSibling(rule);
+        assertEquals(NodeKind.STYLERULE, compiled.getKind(secondRule));
+        assertEquals("a", compiled.getName(compiled.getFirstChild(secondRule)));
+    }
+
+    @Test
+    void testRejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("level0.icss");
+        Files.writeString(file, "p { width: 10px; }");
+        assertThrows(IOException.class, () -> CompiledStylesheet.open(file));
+
+        Path compiled = directory.resolve("level0" + CompiledStylesheet.EXTENSION);
+        CompiledStylesheet.write(Fixtures.uncheckedLevel0(), compiled);
+        byte[] bytes = Files.readAllBytes(compiled);
+        bytes[7]++;
+        Files.write(compiled, bytes);
+        assertThrows(IOException.class, () -> CompiledStylesheet.open(compiled));
+    }
+}
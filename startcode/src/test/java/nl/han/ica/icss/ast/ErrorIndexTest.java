@@ -0,0 +1,146 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.parser.RecursiveDescentParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorIndexTest {
+
+    static final String[] CHECKER_FILES = {"level3.icss", "ch01_undefined.icss", "ch02_types.icss", "ch03_color_ops.icss",
+            "ch04_prop_type.icss", "ch05_if_condition.icss", "ch06_scope.icss"};
+
+    AST parseTestFile(String resource) throws IOException {
+        Pipeline pipeline = new Pipeline();
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(resource)) {
+            pipeline.parseString(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+        return pipeline.getAST();
+    }
+
+    //The errors found by walking the whole tree, in source order
+    void collectErrors(ASTNode node, List<SemanticError> errors) {
+        if (node.hasError()) {
+            errors.add(node.getError());
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            if (node.childAt(i) != null) {
+                collectErrors(node.childAt(i), errors);
+            }
+        }
+    }
+
+    @Test
+    void testIndexMatchesTreeWalk() throws IOException {
+        for (String resource : CHECKER_FILES) {
+            AST ast = parseTestFile(resource);
+            new Checker().check(ast);
+
+            List<SemanticError> walked = new ArrayList<>();
+            collectErrors(ast.root, walked);
+            assertEquals(walked, ast.getErrors(), resource);
+            assertEquals(walked.size(), ast.getErrorIndex().size(), resource);
+            assertSame(walked.isEmpty() ? null : walked.get(0), ast.getErrorIndex().first(), resource);
+        }
+    }
+
+    @Test
+    void testCheckingAgainDoesNotDuplicateErrors() throws IOException {
+        AST ast = parseTestFile("ch02_types.icss");
+        Checker checker = new Checker();
+        checker.check(ast);
+        int errors = ast.getErrorIndex().size();
+        assertTrue(errors > 0);
+
+        checker.check(ast);
+        assertEquals(errors, ast.getErrorIndex().size());
+    }
+
+    @Test
+    void testClearRemovesErrorsFromNodes() throws IOException {
+        AST ast = parseTestFile("ch01_undefined.icss");
+        new Checker().check(ast);
+        ASTNode node = ast.getErrorIndex().getNode(0);
+        assertTrue(node.hasError());
+
+        ast.getErrorIndex().clear();
+        assertFalse(node.hasError());
+        assertTrue(ast.getErrors().isEmpty());
+    }
+
+    @Test
+    void testIndexBelongsToItsAST() throws IOException {
+        AST ast = parseTestFile("level1.icss");
+        AST other = parseTestFile("level1.icss");
+        assertTrue(ast.getErrors().isEmpty());
+
+        ASTNode rule = ast.root.body.get(1);
+        ast.getErrorIndex().record(rule, "recorded");
+        assertEquals(List.of(rule.getError()), ast.getErrors());
+        assertTrue(other.getErrors().isEmpty());
+
+        //Another root starts without errors, the old one keeps its own
+        Stylesheet replaced = new Stylesheet();
+        ast.setRoot(replaced);
+        assertTrue(ast.getErrors().isEmpty());
+        assertTrue(rule.hasError());
+    }
+
+    @Test
+    void testSpansOfErrors() {
+        String input = "p {\n  width: #ff0000;\n  height: Undefined;\n}\n";
+        for (boolean recursiveDescent : new boolean[]{false, true}) {
+            Pipeline pipeline = new Pipeline();
+            if (recursiveDescent) {
+                pipeline.setStylesheetParser(new RecursiveDescentParser());
+            }
+            pipeline.parseString(input);
+            AST ast = pipeline.getAST();
+            new Checker().check(ast);
+
+            ErrorIndex errors = ast.getErrorIndex();
+            //A colour for width, no type for height, and the undefined variable itself
+            assertEquals(3, errors.size());
+            assertEquals("width: #ff0000;", text(input, errors.getSpan(0)));
+            assertEquals("height: Undefined;", text(input, errors.getSpan(1)));
+            assertEquals("Undefined", text(input, errors.getSpan(2)));
+            assertEquals("p {\n  width: #ff0000;\n  height: Undefined;\n}", text(input, ast.root.body.get(0).getSpan()));
+        }
+    }
+
+    private static String text(String input, SourceSpan span) {
+        return input.substring(span.offset, span.getEnd());
+    }
+
+    @Test
+    void testBothEnginesGiveTheSameSpans() throws IOException {
+        String input = new String(getClass().getClassLoader().getResourceAsStream("level3.icss").readAllBytes(), StandardCharsets.UTF_8);
+        Pipeline antlr = new Pipeline();
+        antlr.parseString(input);
+        Pipeline recursiveDescent = new Pipeline();
+        recursiveDescent.setStylesheetParser(new RecursiveDescentParser());
+        recursiveDescent.parseString(input);
+        List<SourceSpan> expected = new ArrayList<>();
+        List<SourceSpan> actual = new ArrayList<>();
+        collectSpans(antlr.getAST().root, expected);
+        collectSpans(recursiveDescent.getAST().root, actual);
+        assertEquals(expected, actual);
+    }
+
+    private static void collectSpans(ASTNode node, List<SourceSpan> spans) {
+        spans.add(node.getSpan());
+        for (int i = 0; i < node.childCount(); i++) {
+            collectSpans(node.childAt(i), spans);
+        }
+    }
+}
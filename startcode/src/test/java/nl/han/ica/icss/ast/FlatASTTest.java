@@ -0,0 +1,87 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.SemanticError;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.Fixtures;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlatASTTest {
+
+    AST parseTestFile(String resource) throws IOException {
+        Pipeline pipeline = new Pipeline();
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(resource)) {
+            pipeline.parseString(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+        return pipeline.getAST();
+    }
+
+    List<String> describe(List<SemanticError> errors) {
+        return errors.stream().map(SemanticError::toString).collect(Collectors.toList());
+    }
+
+    @Test
+    void testToASTMatchesOriginal() {
+        for (AST ast : new AST[]{Fixtures.uncheckedLevel0(), Fixtures.uncheckedLevel1(),
+                Fixtures.uncheckedLevel2(), Fixtures.uncheckedLevel3()}) {
+            FlatAST flat = FlatAST.of(ast);
+            assertEquals(ast, flat.toAST());
+            assertEquals(ast.toString(), flat.toAST().toString());
+        }
+    }
+
+    @Test
+    void testNodesAreStoredInPreorder() {
+        FlatAST flat = FlatAST.of(Fixtures.uncheckedLevel0());
+        int rule = flat.getFirstChild(FlatAST.ROOT);
+        assertEquals(NodeKind.STYLERULE, flat.getKind(rule));
+        int selector = flat.getFirstChild(rule);
+        assertEquals(NodeKind.TAG_SELECTOR, flat.getKind(selector));
+        assertEquals("p", flat.getName(selector));
+        int declaration = flat.getNextSibling(selector);
+        assertEquals(NodeKind.DECLARATION, flat.getKind(declaration));
+        int property = flat.getFirstChild(declaration);
+        assertEquals("background-color", flat.getName(property));
+        assertEquals("#ffffff", flat.getName(flat.getNextSibling(property)));
+    }
+
+    @Test
+    void testCheckerReportsSameErrors() throws IOException {
+        for (String resource : new String[]{"level3.icss", "ch01_undefined.icss", "ch02_types.icss", "ch03_color_ops.icss",
+                "ch04_prop_type.icss", "ch05_if_condition.icss", "ch06_scope.icss"}) {
+            AST ast = parseTestFile(resource);
+            FlatAST flat = FlatAST.of(ast);
+
+            new Checker().check(ast);
+            new Checker().check(flat);
+
+            assertEquals(describe(ast.getErrors()), describe(flat.getErrors()), resource);
+            assertEquals(describe(ast.getErrors()), describe(flat.toAST().getErrors()), resource);
+        }
+    }
+
+    @Test
+    void testEvaluateAndGenerateMatchObjectTree() throws IOException {
+        for (String resource : new String[]{"level0.icss", "level1.icss", "level2.icss", "level3.icss"}) {
+            AST ast = parseTestFile(resource);
+            FlatAST flat = FlatAST.of(ast);
+
+            new Evaluator().apply(ast);
+            FlatAST evaluated = new Evaluator().apply(flat);
+
+            assertEquals(ast, evaluated.toAST(), resource);
+            assertEquals(new Generator().generate(ast), new Generator().generate(evaluated), resource);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package nl.han.ica.icss.ast;
+
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+import nl.han.ica.icss.parser.Fixtures;
+import nl.han.ica.icss.transforms.Evaluator;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeTableTest {
+
+    Stylerule rule(String tag, String property, int pixels) {
+        return (Stylerule) new Stylerule()
+                .addChild(new TagSelector(tag))
+                .addChild(new Declaration(property).addChild(new PixelLiteral(pixels)));
+    }
+
+    Operation operation(Operation operation) {
+        operation.addChild(new ScalarLiteral(2));
+        operation.addChild(new PixelLiteral(10));
+        return operation;
+    }
+
+    @Test
+    void testInternedTreeEqualsOriginal() {
+        NodeTable table = new NodeTable();
+        for (AST ast : new AST[]{Fixtures.uncheckedLevel0(), Fixtures.uncheckedLevel1(),
+                Fixtures.uncheckedLevel2(), Fixtures.uncheckedLevel3()}) {
+            AST interned = table.intern(ast);
+            assertEquals(ast, interned);
+            assertEquals(interned, ast);
+            assertEquals(ast.hashCode(), interned.hashCode());
+            assertEquals(ast.toString(), interned.toString());
+        }
+    }
+
+    @Test
+    void testEqualSubtreesAreOneInstance() {
+        NodeTable table = new NodeTable();
+        Stylerule a = (Stylerule) table.intern(rule("a", "width", 10));
+        Stylerule p = (Stylerule) table.intern(rule("p", "width", 10));
+        assertNotSame(a, p);
+        assertSame(a.body.get(0), p.body.get(0));
+
+        assertSame(a, table.intern(rule("a", "width", 10)));
+        assertSame(a, table.intern(a));
+        assertSame(table.intern(Fixtures.uncheckedLevel3()).root, table.intern(Fixtures.uncheckedLevel3()).root);
+    }
+
+    @Test
+    void testDifferentSubtreesStayApart() {
+        NodeTable table = new NodeTable();
+        assertNotEquals(table.intern(rule("a", "width", 10)), table.intern(rule("a", "height", 10)));
+        assertNotEquals(table.intern(rule("a", "width", 10)), table.intern(rule("a", "width", 20)));
+        assertNotEquals(table.intern(operation(new AddOperation())), table.intern(operation(new MultiplyOperation())));
+        assertNotEquals(operation(new AddOperation()), operation(new MultiplyOperation()));
+    }
+
+    @Test
+    void testSharedNodesCannotBeChanged() {
+        ASTNode shared = new NodeTable().intern(rule("a", "width", 10));
+        assertTrue(shared.isShared());
+        assertThrows(UnsupportedOperationException.class, () -> new ErrorIndex().record(shared, "error"));
+        assertThrows(UnsupportedOperationException.class, () -> shared.addChild(new TagSelector("p")));
+        assertThrows(UnsupportedOperationException.class, () -> shared.removeChild(shared.childAt(0)));
+
+        Stylerule rule = (Stylerule) shared;
+        int hash = rule.hashCode();
+        assertThrows(UnsupportedOperationException.class, () -> rule.body.add(new Declaration("height")));
+        assertThrows(UnsupportedOperationException.class, () -> rule.body.set(0, new Declaration("height")));
+        assertThrows(UnsupportedOperationException.class, () -> rule.selectors.clear());
+        Iterator<ASTNode> iterator = rule.body.iterator();
+        iterator.next();
+        assertThrows(UnsupportedOperationException.class, iterator::remove);
+        assertThrows(UnsupportedOperationException.class, () -> rule.body.subList(0, 1).clear());
+        assertEquals(hash, rule.hashCode());
+        assertEquals(1, rule.body.size());
+    }
+
+    @Test
+    void testSharedTreeIsNotEvaluatedInPlace() {
+        AST interned = new NodeTable().intern(Fixtures.uncheckedLevel3());
+        String before = interned.toString();
+        assertThrows(UnsupportedOperationException.class, () -> new Evaluator().apply(interned));
+        assertEquals(before, interned.toString());
+    }
+}
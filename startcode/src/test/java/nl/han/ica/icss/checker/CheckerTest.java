@@ -0,0 +1,138 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.parser.RecursiveDescentParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckerTest {
+
+    AST parse(String input) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.setStylesheetParser(new RecursiveDescentParser());
+        pipeline.parseString(input);
+        assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+        return pipeline.getAST();
+    }
+
+    void assertAllExpressionsTyped(ASTNode node) {
+        if (node instanceof Expression) {
+            assertNotNull(((Expression) node).getType(), node.getNodeLabel());
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            ASTNode child = node.childAt(i);
+            //The name of an assignment is a VariableReference, but not an expression to type
+            boolean assignedName = node instanceof VariableAssignment && child == ((VariableAssignment) node).name;
+            if (child != null && !assignedName) {
+                assertAllExpressionsTyped(child);
+            }
+        }
+    }
+
+    @Test
+    void testExpressionsKeepTheirType() throws IOException {
+        AST ast;
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("level3.icss")) {
+            ast = parse(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        new Checker().check(ast);
+        assertTrue(ast.getErrors().isEmpty(), ast.getErrors().toString());
+        assertAllExpressionsTyped(ast.root);
+
+        Declaration width = (Declaration) ((Stylerule) ast.root.body.get(6)).body.get(0);
+        assertEquals(ExpressionType.PIXEL, width.expression.getType());
+    }
+
+    @Test
+    void testLongOperationChain() {
+        StringBuilder input = new StringBuilder("p { width: 2 * 1px");
+        for (int i = 0; i < 1000; i++) {
+            input.append(i % 2 == 0 ? " + 1px" : " - 2 * 1px");
+        }
+        input.append("; }");
+        AST ast = parse(input.toString());
+
+        new Checker().check(ast);
+        assertTrue(ast.getErrors().isEmpty(), ast.getErrors().toString());
+        Declaration width = (Declaration) ((Stylerule) ast.root.body.get(0)).body.get(0);
+        assertEquals(ExpressionType.PIXEL, width.expression.getType());
+    }
+
+    @Test
+    void testParallelMatchesSequential() throws IOException {
+        StringBuilder generated = new StringBuilder("W := 1px;\n");
+        for (int i = 0; i < 200; i++) {
+            generated.append(i % 50 == 0 ? "W := #ff0000;\n" : "").append(i % 50 == 25 ? "W := 2px;\n" : "");
+            generated.append("p { width: W + 1px; if[TRUE] { color: W; } else { height: Undefined; } }\n");
+        }
+        ArrayList<String> inputs = new ArrayList<>(List.of(generated.toString()));
+        for (String resource : new String[]{"level3.icss", "ch01_undefined.icss", "ch02_types.icss", "ch06_scope.icss"}) {
+            try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(resource)) {
+                inputs.add(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (String input : inputs) {
+                AST sequential = parse(input);
+                new Checker().check(sequential);
+                AST parallel = parse(input);
+                new Checker().checkParallel(parallel, pool, 0);
+
+                assertEquals(sequential.getErrors().toString(), parallel.getErrors().toString());
+                assertEquals(sequential.root, parallel.root);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testParallelFallsBackToSequential() {
+        StringBuilder generated = new StringBuilder("W := 1px;\n");
+        for (int i = 0; i < Checker.PARALLEL_THRESHOLD; i++) {
+            generated.append("p { width: W + 1px; height: Undefined; }\n");
+        }
+        AST sequential = parse(generated.toString());
+        new Checker().check(sequential);
+
+        //Neither of these ever forks, a pool that was shut down would refuse the tasks
+        ForkJoinPool pool = new ForkJoinPool(4);
+        pool.shutdown();
+        AST small = parse("W := 1px;\np { width: W + 1px; height: Undefined; }\n");
+        new Checker().checkParallel(small, pool);
+        assertEquals(2, small.getErrors().size(), small.getErrors().toString());
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        single.shutdown();
+        AST large = parse(generated.toString());
+        new Checker().checkParallel(large, single);
+        assertEquals(sequential.getErrors().toString(), large.getErrors().toString());
+
+        //At the threshold the rules are checked by tasks
+        assertThrows(RejectedExecutionException.class, () -> new Checker().checkParallel(parse(generated.toString()), pool));
+    }
+
+    @Test
+    void testTypesFollowVariables() {
+        AST ast = parse("Size := 10px; p { Size := 20%; width: Size * 2; } a { width: Size; }");
+        new Checker().check(ast);
+
+        Declaration inRule = (Declaration) ((Stylerule) ast.root.body.get(1)).body.get(1);
+        Declaration outside = (Declaration) ((Stylerule) ast.root.body.get(2)).body.get(0);
+        assertEquals(ExpressionType.PERCENTAGE, inRule.expression.getType());
+        assertEquals(ExpressionType.PIXEL, outside.expression.getType());
+    }
+}
@@ -0,0 +1,77 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PropertySchemaTest {
+
+    PropertySchema load(String text) throws IOException {
+        return PropertySchema.load(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testEveryPropertyHasItsOwnId() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            text.append("property-").append(i).append(i % 2 == 0 ? " PIXEL\n" : " COLOR SCALAR\n");
+        }
+        PropertySchema schema = load(text.toString());
+
+        boolean[] used = new boolean[schema.size()];
+        for (int i = 0; i < 300; i++) {
+            int id = schema.idOf("property-" + i);
+            assertNotEquals(PropertySchema.UNKNOWN, id);
+            assertFalse(used[id]);
+            used[id] = true;
+            assertEquals("property-" + i, schema.getName(id));
+            assertEquals(i % 2 == 0, schema.allows(id, ExpressionType.PIXEL));
+            assertEquals(i % 2 != 0, schema.allows(id, ExpressionType.SCALAR));
+        }
+        assertEquals(PropertySchema.UNKNOWN, schema.idOf("property-300"));
+        assertEquals(PropertySchema.UNKNOWN, schema.idOf(""));
+    }
+
+    @Test
+    void testDefaultSchema() {
+        PropertySchema schema = PropertySchema.getDefault();
+        int width = schema.idOf("width");
+        assertEquals(width, schema.idOf("WIDTH"));
+        assertTrue(schema.allows(width, ExpressionType.PERCENTAGE));
+        assertFalse(schema.allows(width, ExpressionType.COLOR));
+        assertEquals(PropertySchema.UNKNOWN, schema.idOf("depth"));
+    }
+
+    @Test
+    void testBadSchema() {
+        assertThrows(IllegalArgumentException.class, () -> load("width PIXEL\nwidth PERCENTAGE\n"));
+        assertThrows(IllegalArgumentException.class, () -> load("width PIXELS\n"));
+        assertThrows(IllegalArgumentException.class, () -> load("width\n"));
+    }
+
+    @Test
+    void testNoSeedFound() {
+        //With two ids only the lowest bit of the hash counts, and it is the same for both names whatever the seed
+        assertThrows(IllegalArgumentException.class, () -> load("ab PIXEL\ncd PIXEL\n"));
+    }
+
+    @Test
+    void testCheckerUsesSchema() throws IOException {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString("p { font-size: #ffffff; depth: #ffffff; width: 10px; }");
+        AST ast = pipeline.getAST();
+
+        new Checker().check(ast);
+        assertEquals(1, ast.getErrors().size(), ast.getErrors().toString());
+
+        new Checker(load("depth PIXEL\nwidth COLOR\n")).check(ast);
+        assertEquals(2, ast.getErrors().size(), ast.getErrors().toString());
+    }
+}
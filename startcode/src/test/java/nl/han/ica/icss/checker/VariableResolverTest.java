@@ -0,0 +1,102 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.parser.RecursiveDescentParser;
+import nl.han.ica.icss.transforms.Template;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VariableResolverTest {
+
+    AST parse(String input) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.setStylesheetParser(new RecursiveDescentParser());
+        pipeline.parseString(input);
+        assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+        return pipeline.getAST();
+    }
+
+    @Test
+    void testBindingsOfTheEvaluator() {
+        AST ast = parse("A := 1px; B := 2px; p { C := 3px; B := 4px; width: A; height: C; }");
+        int[] bindings = new VariableResolver(VariableResolver.Scoping.EVALUATE).resolve(ast.root);
+        //A and B in the global scope, C in the rule; B in the rule sets the global B
+        assertArrayEquals(new int[]{0, 0, 0, 1, 0, 0, 1, 1, 1, 0, 0, 0}, bindings);
+    }
+
+    @Test
+    void testBindingsOfTheChecker() {
+        AST ast = parse("A := 1px; B := 2px; p { C := 3px; B := 4px; width: A; height: C; }");
+        int[] bindings = new VariableResolver(VariableResolver.Scoping.CHECK).resolve(ast.root);
+        //B in the rule is a variable of the rule, that hides the global B
+        assertArrayEquals(new int[]{0, 0, 0, 1, 0, 0, 0, 1, 1, 0, 0, 0}, bindings);
+    }
+
+    @Test
+    void testIfClauseBindings() {
+        AST ast = parse("p { X := TRUE; if[X] { W := 1px; } else { width: W; } }");
+        //X, the if-clause: where its else-clause starts and ends, X, W, W
+        int[] evaluated = new VariableResolver(VariableResolver.Scoping.EVALUATE).resolve(ast.root);
+        assertArrayEquals(new int[]{0, 0, 8, 10, 0, 0, 0, 0, VariableResolver.UNDEFINED, 0}, evaluated);
+        //The checker has the if-clause in a scope of its own, with its condition, body and else-clause in it
+        int[] checked = new VariableResolver(VariableResolver.Scoping.CHECK).resolve(ast.root);
+        assertArrayEquals(new int[]{0, 0, 8, 10, 1, 0, 0, 0, 1, 0}, checked);
+    }
+
+    @Test
+    void testTopLevelNodesOneByOne() {
+        AST ast = parse("A := 1px; p { width: A; } A := 2px; a { width: A; }");
+        VariableResolver resolver = new VariableResolver(VariableResolver.Scoping.EVALUATE);
+        int[] whole = resolver.resolve(ast.root);
+        resolver.reset();
+        int at = 0;
+        for (ASTNode node : ast.root.body) {
+            int[] bindings = resolver.resolve(node);
+            assertArrayEquals(Arrays.copyOfRange(whole, at, at + bindings.length), bindings);
+            at += bindings.length;
+        }
+        assertEquals(whole.length, at);
+    }
+
+    @Test
+    void testUndefinedVariables() {
+        Checker checker = new Checker();
+        //Used before it is assigned, used after the if-body it is assigned in, assigned in another rule
+        String[] inputs = {"p { width: W; W := 1px; }", "p { if[TRUE] { W := 1px; } width: W; }",
+                "p { W := 1px; } a { width: W; }"};
+        for (String input : inputs) {
+            assertEquals(1, countUndefined(checker, input), input);
+        }
+        //The else-clause is inside the scope of the if-clause, an assignment sees the variable it assigns
+        String[] defined = {"p { if[TRUE] { W := 1px; } else { width: W; } }", "W := W + 1px;"};
+        for (String input : defined) {
+            assertEquals(0, countUndefined(checker, input), input);
+        }
+    }
+
+    private int countUndefined(Checker checker, String input) {
+        AST ast = parse(input);
+        checker.check(ast);
+        int undefined = 0;
+        for (int i = 0; i < ast.getErrorIndex().size(); i++) {
+            if (ast.getErrorIndex().getNode(i).getKind() == NodeKind.VARIABLE_REFERENCE) undefined++;
+        }
+        return undefined;
+    }
+
+    @Test
+    void testAssignmentInRuleSetsGlobal() {
+        String input = "W := 10px; p { W := 20px; width: W; } a { width: W; }";
+        String expected = "p {\n  width: 20px;\n}\n\na {\n  width: 20px;\n}\n\n";
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(input);
+        assertTrue(pipeline.check(), pipeline.getErrors().toString());
+        pipeline.transform();
+        assertEquals(expected, pipeline.generate());
+        assertEquals(expected, Template.compile(parse(input)).render());
+    }
+}
@@ -10,6 +10,7 @@ import org.antlr.v4.runtime.misc.*;
 import org.antlr.v4.runtime.tree.*;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 
 class ParserTest {
 
@@ -53,6 +54,79 @@ class ParserTest {
         return listener.getAST();
     }
 
+    AST buildTestFile(String resource) throws IOException {
+
+        //Same as parseTestFile, but the AST is built during parsing without a parse tree
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        CharStream charStream = CharStreams.fromStream(classLoader.getResourceAsStream(resource));
+        ICSSParser parser = new ICSSParser(new CommonTokenStream(new ICSSLexer(charStream)));
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.setBuildParseTree(false);
+
+        ASTBuilder builder = new ASTBuilder();
+        parser.addParseListener(builder);
+        parser.stylesheet();
+
+        return builder.getAST();
+    }
+
+    @Test
+    void testASTBuilderMatchesASTListener() throws IOException {
+        String[] resources = {"level0.icss", "level1.icss", "level2.icss", "level3.icss",
+                "ch01_undefined.icss", "ch02_types.icss", "ch03_color_ops.icss",
+                "ch04_prop_type.icss", "ch05_if_condition.icss", "ch06_scope.icss"};
+        for (String resource : resources) {
+            assertEquals(parseTestFile(resource), buildTestFile(resource), resource);
+        }
+    }
+
+    @Test
+    void testRepeatedNamesAreInterned() throws IOException {
+        //level0: p and #menu both set width, a and .menu both set color
+        for (AST ast : new AST[]{parseTestFile("level0.icss"), buildTestFile("level0.icss"), parseTestFileRecursiveDescent("level0.icss")}) {
+            assertSame(propertyName(ast, 0, 1), propertyName(ast, 2, 0));
+            assertSame(propertyName(ast, 1, 0), propertyName(ast, 3, 0));
+        }
+    }
+
+    private String propertyName(AST ast, int rule, int declaration) {
+        Stylerule stylerule = (Stylerule) ast.root.body.get(rule);
+        return ((Declaration) stylerule.body.get(declaration)).property.name;
+    }
+
+    AST parseTestFileRecursiveDescent(String resource) throws IOException {
+
+        //Same as parseTestFile, but with the hand-written parser engine
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        String input = new String(classLoader.getResourceAsStream(resource).readAllBytes(), StandardCharsets.UTF_8);
+        StringBuilder errors = new StringBuilder();
+        AST ast = new RecursiveDescentParser().parse(input, new BaseErrorListener() {
+            public void syntaxError(Recognizer<?,?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+                errors.append(line).append(':').append(charPositionInLine).append(' ').append(msg).append('\n');
+            }
+        });
+        assertEquals("", errors.toString(), resource);
+        return ast;
+    }
+
+    @Test
+    void testRecursiveDescentParserMatchesASTListener() throws IOException {
+        String[] resources = {"level0.icss", "level1.icss", "level2.icss", "level3.icss",
+                "ch01_undefined.icss", "ch02_types.icss", "ch03_color_ops.icss",
+                "ch04_prop_type.icss", "ch05_if_condition.icss", "ch06_scope.icss"};
+        for (String resource : resources) {
+            AST expected = parseTestFile(resource);
+            AST actual = parseTestFileRecursiveDescent(resource);
+            assertEquals(expected, actual, resource);
+            assertEquals(expected.toString(), actual.toString(), resource);
+        }
+    }
+
+    @Test
+    void testRecursiveDescentParseLevel3() throws IOException {
+        assertEquals(Fixtures.uncheckedLevel3(), parseTestFileRecursiveDescent("level3.icss"));
+    }
+
     @Test
     void testParseLevel0() throws IOException {
 
@@ -0,0 +1,94 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Declaration;
+import nl.han.ica.icss.ast.NodeTable;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.generator.Generator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluatorTest {
+
+    AST parseTestFile(String resource) throws IOException {
+        Pipeline pipeline = new Pipeline();
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(resource)) {
+            pipeline.parseString(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+        return pipeline.getAST();
+    }
+
+    @Test
+    void testEvaluateLeavesInputUnchanged() throws IOException {
+        for (String resource : new String[]{"level0.icss", "level1.icss", "level2.icss", "level3.icss"}) {
+            AST ast = parseTestFile(resource);
+            String before = ast.toString();
+            AST evaluated = new Evaluator().evaluate(ast);
+            assertEquals(before, ast.toString(), resource);
+
+            AST applied = parseTestFile(resource);
+            new Evaluator().apply(applied);
+            assertEquals(new Generator().generate(applied), new Generator().generate(evaluated), resource);
+        }
+    }
+
+    @Test
+    void testEvaluateSharesUnchangedNodes() throws IOException {
+        AST ast = parseTestFile("level3.icss");
+        AST evaluated = new Evaluator().evaluate(ast);
+
+        Stylerule input = (Stylerule) ast.root.body.get(4);
+        Stylerule output = (Stylerule) evaluated.root.body.get(0);
+        assertNotSame(input, output);
+        assertSame(input.selectors.get(0), output.selectors.get(0));
+        //background-color: #ffffff is already a literal, width: ParWidth is not
+        assertSame(input.body.get(0), output.body.get(0));
+        assertNotSame(input.body.get(1), output.body.get(1));
+        assertSame(((Declaration) input.body.get(1)).property, ((Declaration) output.body.get(1)).property);
+    }
+
+    @Test
+    void testEvaluateRefusesInternedAST() {
+        String input = "p { X := 2px; width: X; } a { X := 3px; width: X; }";
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(input);
+        AST ast = pipeline.getAST();
+        AST interned = new NodeTable().intern(ast);
+        String before = interned.toString();
+        assertThrows(UnsupportedOperationException.class, () -> new Evaluator().evaluate(interned));
+        assertEquals(before, interned.toString());
+
+        //The tree it was interned from evaluates each reference to its own variable
+        assertEquals("p {\n  width: 2px;\n}\n\na {\n  width: 3px;\n}\n\n", new Generator().generate(new Evaluator().evaluate(ast)));
+    }
+
+    @Test
+    void testEvaluateOneASTOnManyThreads() throws Exception {
+        AST ast = parseTestFile("level3.icss");
+        String expected = new Generator().generate(new Evaluator().evaluate(ast));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                results.add(executor.submit(() -> new Generator().generate(new Evaluator().evaluate(ast))));
+            }
+            for (Future<String> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.ast.literals.ColorLiteral;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateTest {
+
+    String readTestFile(String resource) throws IOException {
+        try (InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream(resource)) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    AST parse(String input) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(input);
+        assertTrue(pipeline.isParsed(), pipeline.getErrors().toString());
+        return pipeline.getAST();
+    }
+
+    String compileWithPipeline(String input) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(input);
+        assertTrue(pipeline.check(), pipeline.getErrors().toString());
+        pipeline.transform();
+        return pipeline.generate();
+    }
+
+    @Test
+    void testRenderMatchesPipeline() throws IOException {
+        for (String resource : new String[]{"level0.icss", "level1.icss", "level2.icss", "level3.icss"}) {
+            String input = readTestFile(resource);
+            assertEquals(compileWithPipeline(input), Template.compile(parse(input)).render(), resource);
+        }
+    }
+
+    @Test
+    void testOverridesMatchChangedStylesheet() throws IOException {
+        String input = readTestFile("level3.icss");
+        Template template = Template.compile(parse(input));
+
+        Map<String, Literal> overrides = Map.of("LinkColor", ColorLiteral.valueOf("#00ff00"),
+                "ParWidth", PixelLiteral.valueOf(100), "AdjustColor", BoolLiteral.valueOf(false));
+        String changed = input.replace("LinkColor := #ff0000;", "LinkColor := #00ff00;")
+                .replace("ParWidth := 500px;", "ParWidth := 100px;")
+                .replace("AdjustColor := TRUE;", "AdjustColor := FALSE;");
+        assertEquals(compileWithPipeline(changed), template.render(overrides));
+        //Rendering with overrides does not change the template
+        assertEquals(compileWithPipeline(input), template.render());
+    }
+
+    @Test
+    void testLocalVariablesAndBranches() {
+        String input = "Gap := 4px; Wide := TRUE;\n"
+                + "p { Gap := Gap * 2; if[Wide] { Extra := Gap + 1px; width: Extra * 10; } else { width: Gap; } margin: Gap; }\n"
+                + "a { padding: Gap; }";
+        Template template = Template.compile(parse(input));
+        assertEquals(compileWithPipeline(input), template.render());
+        assertEquals(compileWithPipeline(input.replace("Gap := 4px", "Gap := 1px").replace("Wide := TRUE", "Wide := FALSE")),
+                template.render(Map.of("Gap", PixelLiteral.valueOf(1), "Wide", BoolLiteral.valueOf(false))));
+    }
+
+    @Test
+    void testBadInput() {
+        assertThrows(IllegalArgumentException.class, () -> Template.compile(parse("p { width: Undefined; }")));
+
+        Template template = Template.compile(parse("Size := 10px; p { width: Size; }"));
+        assertThrows(IllegalArgumentException.class, () -> template.render(Map.of("Other", PixelLiteral.valueOf(1))));
+        assertThrows(IllegalArgumentException.class, () -> template.render(Map.of("Size", ColorLiteral.valueOf("#ffffff"))));
+    }
+
+    @Test
+    void testRenderOnManyThreads() throws Exception {
+        Template template = Template.compile(parse(readTestFile("level3.icss")));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> renders = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                Map<String, Literal> overrides = Map.of("ParWidth", PixelLiteral.valueOf(i));
+                renders.add(executor.submit(() -> template.render(overrides)));
+            }
+            for (int i = 0; i < renders.size(); i++) {
+                assertTrue(renders.get(i).get().contains("#menu {\n  width: " + (i + 20) + "px;\n}"));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}